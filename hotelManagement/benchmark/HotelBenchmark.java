@@ -0,0 +1,290 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks the hot paths of the reservation services.
+ * Every combination of benchmark and parameters runs in its own JVM, so the
+ * state of the singletons of one run can't influence the next one.
+ * <pre>
+ * java -cp &lt;classes&gt; HotelBenchmark --rooms=1000,10000 --reservations=100000
+ *      --stay=1,7 --threads=1,4 --benchmarks=findRooms,reserveARoom
+ * </pre>
+ * The results are printed as a table with throughput, latency percentiles
+ * and the bytes allocated per operation.
+ */
+public class HotelBenchmark {
+
+    private static final List<String> BENCHMARKS = List.of("findRooms", "findAlternativeRooms",
+            "reserveARoom", "getCustomersReservation", "addCustomer", "newCustomer");
+    private static final int SEARCH_WINDOW_DAYS = 365;
+    private static final int SAMPLES_PER_THREAD = 1 << 16;
+    private static final long SEED = 42;
+
+    private static volatile Object sink;
+
+    private final int rooms;
+    private final int reservations;
+    private final int stay;
+    private final int threads;
+    private final int customers;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final LocalDate today = LocalDate.now(zone);
+    private final ReservationService reservationService = ReservationService.getSingleton();
+    private final CustomerService customerService = CustomerService.getSingleton();
+    private final AtomicInteger createdCustomers = new AtomicInteger();
+
+    private HotelBenchmark(final int rooms, final int reservations, final int stay, final int threads) {
+        this.rooms = rooms;
+        this.reservations = reservations;
+        this.stay = stay;
+        this.threads = threads;
+        this.customers = Math.max(1000, reservations / 10);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+
+        if (options.containsKey("fork")) {
+            runFork(options);
+            return;
+        }
+
+        final int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        final int measureSeconds = Integer.parseInt(options.getOrDefault("measure", "5"));
+
+        System.out.printf("%-24s %8s %12s %5s %7s %12s %10s %10s %10s %10s%n", "Benchmark", "Rooms",
+                "Reservations", "Stay", "Threads", "ops/s", "avg ns", "p50 ns", "p99 ns", "B/op");
+
+        for (String benchmark : split(options.getOrDefault("benchmarks", String.join(",", BENCHMARKS)))) {
+            for (String rooms : split(options.getOrDefault("rooms", "1000,10000"))) {
+                for (String reservations : split(options.getOrDefault("reservations", "100000"))) {
+                    for (String stay : split(options.getOrDefault("stay", "3"))) {
+                        for (String threads : split(options.getOrDefault("threads", "1,4"))) {
+                            System.out.println(fork(benchmark, rooms, reservations, stay, threads,
+                                    warmupSeconds, measureSeconds));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one benchmark with one set of parameters in a new JVM.
+     * @return the result line of the run
+     */
+    private static String fork(final String benchmark, final String rooms, final String reservations,
+                               final String stay, final String threads, final int warmupSeconds,
+                               final int measureSeconds) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), HotelBenchmark.class.getName(),
+                "--fork=" + benchmark, "--rooms=" + rooms, "--reservations=" + reservations,
+                "--stay=" + stay, "--threads=" + threads,
+                "--warmup=" + warmupSeconds, "--measure=" + measureSeconds)
+                .redirectErrorStream(true)
+                .start();
+        final StringBuilder output = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                output.append(line);
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            return benchmark + " failed: " + output;
+        }
+
+        return output.toString();
+    }
+
+    private static void runFork(final Map<String, String> options) throws InterruptedException {
+        final HotelBenchmark benchmark = new HotelBenchmark(
+                Integer.parseInt(options.get("rooms")), Integer.parseInt(options.get("reservations")),
+                Integer.parseInt(options.get("stay")), Integer.parseInt(options.get("threads")));
+
+        benchmark.setUp();
+        benchmark.run(options.get("fork"),
+                Integer.parseInt(options.get("warmup")), Integer.parseInt(options.get("measure")));
+    }
+
+    /**
+     * Creates the rooms, customers and reservations of the hotel.
+     */
+    private void setUp() {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final List<Room> newRooms = new ArrayList<>(rooms);
+        final List<Customer> newCustomers = new ArrayList<>(customers);
+        final List<Reservation> newReservations = new ArrayList<>(reservations);
+
+        for (int room = 0; room < rooms; room++) {
+            newRooms.add(new Room(String.valueOf(room), 50.0 + random.nextInt(250),
+                    random.nextBoolean() ? RoomType.SINGLE : RoomType.DOUBLE));
+        }
+        for (int customer = 0; customer < customers; customer++) {
+            newCustomers.add(new Customer("First" + customer, "Last" + customer, email(customer)));
+        }
+
+        reservationService.addRooms(newRooms);
+        customerService.addCustomers(newCustomers);
+
+        for (int reservation = 0; reservation < reservations; reservation++) {
+            final LocalDate checkIn = today.plusDays(random.nextInt(SEARCH_WINDOW_DAYS));
+
+            newReservations.add(new Reservation(newCustomers.get(random.nextInt(customers)),
+                    newRooms.get(random.nextInt(rooms)), toDate(checkIn),
+                    toDate(checkIn.plusDays(1 + random.nextInt(2 * stay)))));
+        }
+
+        reservationService.addReservations(newReservations);
+    }
+
+    /**
+     * Runs the benchmark on all threads, first to warm up and then to measure.
+     */
+    private void run(final String benchmark, final int warmupSeconds, final int measureSeconds)
+            throws InterruptedException {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long[][] samples = new long[threads][SAMPLES_PER_THREAD];
+        final long[] operations = new long[threads];
+        final long[] allocatedBytes = new long[threads];
+        final CountDownLatch finished = new CountDownLatch(threads);
+        final long measureStart = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        final long measureEnd = measureStart + measureSeconds * 1_000_000_000L;
+
+        for (int thread = 0; thread < threads; thread++) {
+            final int index = thread;
+            final Thread worker = new Thread(() -> {
+                final SplittableRandom random = new SplittableRandom(SEED + index);
+
+                while (System.nanoTime() < measureStart) {
+                    operation(benchmark, random, index);
+                }
+
+                final long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long count = 0;
+                long now = System.nanoTime();
+
+                while (now < measureEnd) {
+                    operation(benchmark, random, index);
+
+                    final long end = System.nanoTime();
+                    samples[index][(int) (count++ & (SAMPLES_PER_THREAD - 1))] = end - now;
+                    now = end;
+                }
+
+                allocatedBytes[index] = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+                        - allocatedBefore;
+                operations[index] = count;
+                finished.countDown();
+            });
+
+            worker.start();
+        }
+
+        finished.await();
+        report(benchmark, samples, operations, allocatedBytes, measureSeconds);
+    }
+
+    private void operation(final String benchmark, final SplittableRandom random, final int thread) {
+        switch (benchmark) {
+            case "findRooms" -> {
+                final LocalDate checkIn = randomCheckIn(random);
+                sink = reservationService.findRooms(toDate(checkIn), toDate(checkIn.plusDays(stay)));
+            }
+            case "findAlternativeRooms" -> {
+                final LocalDate checkIn = randomCheckIn(random);
+                sink = reservationService.findAlternativeRooms(toDate(checkIn), toDate(checkIn.plusDays(stay)));
+            }
+            case "reserveARoom" -> {
+                final LocalDate checkIn = randomCheckIn(random);
+                sink = reservationService.reserveARoomIfAvailable(
+                        customerService.getCustomer(email(random.nextInt(customers))),
+                        reservationService.getARoom(String.valueOf(random.nextInt(rooms))),
+                        toDate(checkIn), toDate(checkIn.plusDays(stay)));
+            }
+            case "getCustomersReservation" -> sink = reservationService.getCustomersReservation(
+                    customerService.getCustomer(email(random.nextInt(customers))));
+            case "addCustomer" -> customerService.addCustomer(
+                    "new" + thread + "." + createdCustomers.incrementAndGet() + "@hotel.com", "First", "Last");
+            case "newCustomer" -> sink = new Customer("First", "Last", email(random.nextInt(customers)));
+            default -> throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+    }
+
+    private void report(final String benchmark, final long[][] samples, final long[] operations,
+                        final long[] allocatedBytes, final int measureSeconds) {
+        final long totalOperations = Arrays.stream(operations).sum();
+        final long[] latencies = new long[(int) Arrays.stream(operations)
+                .map(count -> Math.min(count, SAMPLES_PER_THREAD)).sum()];
+        int position = 0;
+
+        for (int thread = 0; thread < threads; thread++) {
+            final int count = (int) Math.min(operations[thread], SAMPLES_PER_THREAD);
+
+            System.arraycopy(samples[thread], 0, latencies, position, count);
+            position += count;
+        }
+
+        Arrays.sort(latencies);
+
+        System.out.printf("%-24s %8d %12d %5d %7d %12.0f %10.0f %10d %10d %10.1f%n", benchmark, rooms,
+                reservations, stay, threads, (double) totalOperations / measureSeconds,
+                (double) measureSeconds * threads * 1_000_000_000L / Math.max(totalOperations, 1),
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                (double) Arrays.stream(allocatedBytes).sum() / Math.max(totalOperations, 1));
+    }
+
+    private static long percentile(final long[] sortedLatencies, final double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)];
+    }
+
+    private LocalDate randomCheckIn(final SplittableRandom random) {
+        return today.plusDays(random.nextInt(SEARCH_WINDOW_DAYS));
+    }
+
+    private Date toDate(final LocalDate date) {
+        return Date.from(date.atStartOfDay(zone).toInstant());
+    }
+
+    private static String email(final int customer) {
+        return "customer" + customer + "@hotel.com";
+    }
+
+    private static List<String> split(final String values) {
+        return Arrays.asList(values.split(","));
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new LinkedHashMap<>();
+
+        for (String arg : args) {
+            final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        return options;
+    }
+}
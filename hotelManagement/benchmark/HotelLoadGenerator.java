@@ -0,0 +1,413 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the hotel and admin resources with many concurrent guests, like the
+ * menus and the HTTP API do, and reports the sustained throughput and the
+ * latency percentiles of every operation.
+ * <pre>
+ * java -cp &lt;classes&gt; HotelLoadGenerator --rooms=2000 --customers=100000 --reservations=200000
+ *      --threads=64 --virtual --thinkMillis=5 --warmup=5 --duration=30 --seed=42
+ *      --mix=search:55,book:25,myReservations:12,cancel:5,manifest:3
+ * </pre>
+ * Guests wish for check-in days near today, on weekends and in the summer
+ * more often than on other days, and choose one of the cheapest free rooms,
+ * so popular nights run full and guests compete for the same rooms.
+ * A booking is a conflict when the chosen room was booked in the meantime and
+ * rejected when no room was free for the wished dates.
+ * Every guest thread draws its operations from its own generator seeded from
+ * the seed, so a run with the same options repeats the same requests. With
+ * more than one thread only the interleaving of the threads differs.
+ */
+public class HotelLoadGenerator {
+
+    private static final List<String> OPERATIONS = List.of("search", "book", "myReservations", "cancel", "manifest");
+    private static final String DEFAULT_MIX = "search:55,book:25,myReservations:12,cancel:5,manifest:3";
+    private static final int HORIZON_DAYS = 365;
+    private static final int SHOWN_ROOMS = 20;
+    private static final int CHOSEN_ROOMS = 5;
+    private static final double WEEKEND_FACTOR = 2.0;
+    private static final double SEASON_FACTOR = 1.5;
+    private static final int KEPT_BOOKINGS = 1000;
+
+    private final HotelResource hotelResource = HotelResource.getSingleton();
+    private final AdminResource adminResource = AdminResource.getSingleton();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final LocalDate today = LocalDate.now(zone);
+    private final Map<String, Statistics> statistics = new LinkedHashMap<>();
+    private final LongAdder operations = new LongAdder();
+    private final int rooms;
+    private final int customers;
+    private final int reservations;
+    private final int maxStay;
+    private final long seed;
+    private final long thinkNanos;
+    private final int[] mix;
+    private final double[] dayDistribution;
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private HotelLoadGenerator(final Map<String, String> options) {
+        this.rooms = Integer.parseInt(options.getOrDefault("rooms", "2000"));
+        this.customers = Integer.parseInt(options.getOrDefault("customers", "100000"));
+        this.reservations = Integer.parseInt(options.getOrDefault("reservations", "0"));
+        this.maxStay = Integer.parseInt(options.getOrDefault("maxStay", "7"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.thinkNanos = TimeUnit.MICROSECONDS.toNanos(
+                (long) (Double.parseDouble(options.getOrDefault("thinkMillis", "0")) * 1000));
+        this.mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        this.dayDistribution = dayDistribution(Double.parseDouble(options.getOrDefault("skew", "0.8")));
+
+        for (String operation : OPERATIONS) {
+            statistics.put(operation, new Statistics());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> options = parseOptions(args);
+        final HotelLoadGenerator generator = new HotelLoadGenerator(options);
+        final int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        final int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        final int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        final int reportSeconds = Integer.parseInt(options.getOrDefault("reportEvery", "5"));
+
+        generator.setUp();
+        generator.run(threads, options.containsKey("virtual"), warmupSeconds, durationSeconds, reportSeconds);
+    }
+
+    /**
+     * Creates the rooms and customers and books the initial reservations.
+     */
+    private void setUp() {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Room> newRooms = new ArrayList<>(rooms);
+        final List<Reservation> newReservations = new ArrayList<>(reservations);
+        final long start = System.nanoTime();
+
+        for (int room = 0; room < rooms; room++) {
+            newRooms.add(new Room(String.valueOf(room), 50.0 + random.nextInt(250),
+                    random.nextBoolean() ? RoomType.SINGLE : RoomType.DOUBLE));
+        }
+        adminResource.addRoom(newRooms);
+
+        for (int customer = 0; customer < customers; customer++) {
+            hotelResource.createACustomer(email(customer), "First" + customer, "Last" + customer);
+        }
+
+        for (int reservation = 0; reservation < reservations; reservation++) {
+            final LocalDate checkIn = randomCheckIn(random);
+
+            newReservations.add(new Reservation(hotelResource.getCustomer(email(random.nextInt(customers))),
+                    newRooms.get(random.nextInt(rooms)), toDate(checkIn), toDate(randomCheckOut(random, checkIn))));
+        }
+        ReservationService.getSingleton().addReservations(newReservations);
+
+        System.out.printf("Hotel with %d rooms, %d customers and %d reservations set up in %d ms%n",
+                rooms, customers, reservations, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Runs the guests, first to warm up and then to measure, and prints the
+     * throughput of every interval and the report at the end.
+     */
+    private void run(final int threads, final boolean virtual, final int warmupSeconds, final int durationSeconds,
+                     final int reportSeconds) throws InterruptedException {
+        final ExecutorService guests = virtual ? newVirtualThreadExecutor() : Executors.newFixedThreadPool(threads);
+
+        for (int thread = 0; thread < threads; thread++) {
+            final long guestSeed = seed + 1 + thread;
+
+            guests.execute(() -> runGuest(new SplittableRandom(guestSeed)));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        measuring = true;
+
+        final long measureStart = System.nanoTime();
+        final long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intervalStart = measureStart;
+        long intervalOperations = operations.sum();
+
+        System.out.printf("Measuring %d %s guests for %d s%n", threads, virtual ? "virtual" : "platform",
+                durationSeconds);
+
+        while (System.nanoTime() < measureEnd) {
+            Thread.sleep(Math.max(1, Math.min(TimeUnit.SECONDS.toMillis(reportSeconds),
+                    TimeUnit.NANOSECONDS.toMillis(measureEnd - System.nanoTime()))));
+
+            final long now = System.nanoTime();
+            final long total = operations.sum();
+
+            System.out.printf("%6.1f s %12.0f ops/s%n", (now - measureStart) / 1e9,
+                    (total - intervalOperations) * 1e9 / (now - intervalStart));
+            intervalStart = now;
+            intervalOperations = total;
+        }
+
+        measuring = false;
+        stopped = true;
+        guests.shutdown();
+        guests.awaitTermination(1, TimeUnit.MINUTES);
+        report((System.nanoTime() - measureStart) / 1e9);
+    }
+
+    private void runGuest(final SplittableRandom random) {
+        final List<Reservation> bookings = new ArrayList<>();
+        final int totalWeight = mix[mix.length - 1];
+
+        while (!stopped) {
+            final int draw = random.nextInt(totalWeight);
+            int operation = 0;
+
+            while (mix[operation] <= draw) {
+                operation++;
+            }
+
+            final long start = System.nanoTime();
+            final Outcome outcome = perform(OPERATIONS.get(operation), random, bookings);
+
+            if (outcome != Outcome.SKIPPED) {
+                final long nanos = System.nanoTime() - start;
+
+                operations.increment();
+
+                if (measuring) {
+                    statistics.get(OPERATIONS.get(operation)).record(nanos, outcome);
+                }
+            }
+
+            if (thinkNanos > 0) {
+                LockSupport.parkNanos((long) (-thinkNanos * Math.log(1 - random.nextDouble())));
+            }
+        }
+    }
+
+    /**
+     * Performs one operation of a guest.
+     * @param bookings which the guest made and may cancel
+     */
+    private Outcome perform(final String operation, final SplittableRandom random, final List<Reservation> bookings) {
+        final String email = email(random.nextInt(customers));
+        final LocalDate checkIn = randomCheckIn(random);
+        final Date checkInDate = toDate(checkIn);
+        final Date checkOutDate = toDate(randomCheckOut(random, checkIn));
+
+        switch (operation) {
+            case "search" -> {
+                final List<Room> freeRooms = hotelResource.findCheapestRooms(checkInDate, checkOutDate, null,
+                        null, null, SHOWN_ROOMS);
+
+                return freeRooms.isEmpty() ? Outcome.REJECTED : Outcome.DONE;
+            }
+            case "book" -> {
+                final List<Room> freeRooms = hotelResource.findCheapestRooms(checkInDate, checkOutDate, null,
+                        null, null, SHOWN_ROOMS);
+
+                if (freeRooms.isEmpty()) {
+                    return Outcome.REJECTED;
+                }
+
+                final Room room = freeRooms.get(random.nextInt(Math.min(CHOSEN_ROOMS, freeRooms.size())));
+                final Reservation reservation = hotelResource.bookARoomIfAvailable(email, room,
+                        checkInDate, checkOutDate);
+
+                if (reservation == null) {
+                    return Outcome.CONFLICT;
+                }
+                if (bookings.size() < KEPT_BOOKINGS) {
+                    bookings.add(reservation);
+                }
+                return Outcome.DONE;
+            }
+            case "myReservations" -> {
+                hotelResource.getCustomersReservations(email);
+                return Outcome.DONE;
+            }
+            case "cancel" -> {
+                if (bookings.isEmpty()) {
+                    return Outcome.SKIPPED;
+                }
+
+                final Reservation reservation = bookings.remove(random.nextInt(bookings.size()));
+
+                return hotelResource.cancelReservation(reservation) ? Outcome.DONE : Outcome.REJECTED;
+            }
+            case "manifest" -> {
+                adminResource.getManifest(checkInDate);
+                return Outcome.DONE;
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private void report(final double seconds) {
+        long total = 0;
+
+        System.out.printf("%n%-16s %10s %10s %10s %10s %10s %10s %10s %9s %9s%n", "Operation", "count", "ops/s",
+                "mean us", "p50 us", "p99 us", "p999 us", "max us", "conflict", "rejected");
+
+        for (Map.Entry<String, Statistics> entry : statistics.entrySet()) {
+            final Statistics operation = entry.getValue();
+            final LatencyHistogram latencies = operation.latencies;
+            final long count = latencies.getCount();
+
+            total += count;
+
+            System.out.printf("%-16s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f %8.2f%% %8.2f%%%n",
+                    entry.getKey(), count, count / seconds,
+                    count == 0 ? 0.0 : latencies.getTotalNanos() / 1e3 / count,
+                    latencies.getPercentileNanos(0.50) / 1e3, latencies.getPercentileNanos(0.99) / 1e3,
+                    latencies.getPercentileNanos(0.999) / 1e3, latencies.getMaxNanos() / 1e3,
+                    percentOf(operation.conflicts.sum(), count), percentOf(operation.rejections.sum(), count));
+        }
+
+        System.out.printf("%-16s %10d %10.0f%n", "total", total, total / seconds);
+    }
+
+    private static double percentOf(final long part, final long count) {
+        return count == 0 ? 0.0 : 100.0 * part / count;
+    }
+
+    /**
+     * Weighs the days of the horizon: the nearer the more popular, weekends and
+     * summer nights more than others. The skew 0 leaves only weekends and season.
+     * @return cumulative probability of the days
+     */
+    private double[] dayDistribution(final double skew) {
+        final double[] cumulative = new double[HORIZON_DAYS];
+        double sum = 0;
+
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            final LocalDate date = today.plusDays(day);
+            final boolean weekend = date.getDayOfWeek() == DayOfWeek.FRIDAY
+                    || date.getDayOfWeek() == DayOfWeek.SATURDAY;
+            final boolean season = date.getMonthValue() >= 6 && date.getMonthValue() <= 8;
+
+            sum += Math.pow(day + 1, -skew) * (weekend ? WEEKEND_FACTOR : 1) * (season ? SEASON_FACTOR : 1);
+            cumulative[day] = sum;
+        }
+
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            cumulative[day] /= sum;
+        }
+
+        return cumulative;
+    }
+
+    private LocalDate randomCheckIn(final SplittableRandom random) {
+        final double draw = random.nextDouble();
+        int low = 0;
+        int high = dayDistribution.length - 1;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (dayDistribution[middle] < draw) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return today.plusDays(low);
+    }
+
+    private LocalDate randomCheckOut(final SplittableRandom random, final LocalDate checkIn) {
+        return checkIn.plusDays(1 + random.nextInt(maxStay));
+    }
+
+    private Date toDate(final LocalDate date) {
+        return Date.from(date.atStartOfDay(zone).toInstant());
+    }
+
+    private static String email(final int customer) {
+        return "guest" + customer + "@hotel.com";
+    }
+
+    /**
+     * Parses the weights of the operations, e.g. search:60,book:40.
+     * @return cumulative weights in the order of the operations
+     */
+    private static int[] parseMix(final String mix) {
+        final int[] cumulative = new int[OPERATIONS.size()];
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+
+        for (String entry : mix.split(",")) {
+            final String[] weight = entry.split(":", 2);
+
+            if (!OPERATIONS.contains(weight[0]) || weight.length < 2 || Integer.parseInt(weight[1]) < 0) {
+                throw new IllegalArgumentException("Invalid mix entry " + entry + ", operations are " + OPERATIONS);
+            }
+            weights.put(weight[0], Integer.parseInt(weight[1]));
+        }
+
+        for (int operation = 0; operation < cumulative.length; operation++) {
+            cumulative[operation] = (operation > 0 ? cumulative[operation - 1] : 0)
+                    + weights.getOrDefault(OPERATIONS.get(operation), 0);
+        }
+
+        if (cumulative[cumulative.length - 1] == 0) {
+            throw new IllegalArgumentException("The mix has no operation");
+        }
+
+        return cumulative;
+    }
+
+    /**
+     * Creates an executor which runs every guest on its own virtual thread, it needs Java 21+.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer", ex);
+        }
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new LinkedHashMap<>();
+
+        for (String arg : args) {
+            final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        return options;
+    }
+
+    private enum Outcome {
+        DONE, CONFLICT, REJECTED, SKIPPED
+    }
+
+    /**
+     * Latencies and outcomes of one operation while measuring.
+     */
+    private static class Statistics {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+
+        private void record(final long nanos, final Outcome outcome) {
+            latencies.record(nanos);
+
+            if (outcome == Outcome.CONFLICT) {
+                conflicts.increment();
+            } else if (outcome == Outcome.REJECTED) {
+                rejections.increment();
+            }
+        }
+    }
+}
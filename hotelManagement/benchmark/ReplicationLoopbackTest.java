@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts a leader and a follower over loopback and checks the replication through the HTTP API.
+ * <pre>
+ * java -cp &lt;classes&gt; ReplicationLoopbackTest --rooms=50 --bookings=500
+ *      --leaderHttp=18080 --followerHttp=18081 --replicationPort=19090 --data=&lt;directory&gt;
+ * </pre>
+ * The leader and the follower run as processes of the same classpath. The test
+ * books on the leader and reads its own booking from the follower with the position of the
+ * booking, books and cancels more reservations and compares the listings of the leader and
+ * the follower, and finally restarts the leader and checks that the follower stops and
+ * answers 503. Every check prints one line, the exit status is 1 when a check failed.
+ */
+public class ReplicationLoopbackTest {
+
+    private static final String POSITION_HEADER = "X-Replication-Position";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final Pattern NEXT_CURSOR = Pattern.compile("\"nextCursor\":(\\d+)");
+    private static final long START_MILLIS = 15_000;
+    private static final long STOP_MILLIS = 10_000;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Process> processes = new ArrayList<>();
+    private final LocalDate firstNight = LocalDate.now().plusDays(30);
+    private final int rooms;
+    private final int bookings;
+    private final int leaderHttp;
+    private final int followerHttp;
+    private final int replicationPort;
+    private final Path data;
+    private int failures;
+
+    private ReplicationLoopbackTest(final Map<String, String> options) throws IOException {
+        this.rooms = Integer.parseInt(options.getOrDefault("rooms", "50"));
+        this.bookings = Integer.parseInt(options.getOrDefault("bookings", "500"));
+        this.leaderHttp = Integer.parseInt(options.getOrDefault("leaderHttp", "18080"));
+        this.followerHttp = Integer.parseInt(options.getOrDefault("followerHttp", "18081"));
+        this.replicationPort = Integer.parseInt(options.getOrDefault("replicationPort", "19090"));
+        this.data = options.containsKey("data") ? Path.of(options.get("data"))
+                : Files.createTempDirectory("hotel-replication");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final ReplicationLoopbackTest test = new ReplicationLoopbackTest(parseOptions(args));
+
+        try {
+            test.run();
+        } finally {
+            test.stopAll();
+        }
+
+        System.out.println(test.failures == 0 ? "All checks passed" : test.failures + " checks failed");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    private void run() throws IOException, InterruptedException {
+        final Process leader = startLeader();
+        startProcess(List.of("-Dhotel.replication.leader=127.0.0.1:" + replicationPort,
+                "HotelApplication", "--http", String.valueOf(followerHttp)), followerHttp);
+
+        for (int room = 0; room < rooms; room++) {
+            send(leaderHttp, "POST", "admin/rooms", "{\"roomNumber\":\"" + room
+                    + "\",\"price\":\"" + (50 + room) + "\",\"roomType\":\"SINGLE\"}", null);
+        }
+        send(leaderHttp, "POST", "customers", "{\"email\":\"guest@hotel.com\",\"firstName\":\"Guest\","
+                + "\"lastName\":\"Loopback\"}", null);
+
+        final HttpResponse<String> booking = send(leaderHttp, "POST", "reservations", bookingOf(0, 0), null);
+        final String position = booking.headers().firstValue(POSITION_HEADER).orElse(null);
+
+        check("booking on the leader", booking.statusCode() == 201 && position != null,
+                booking.statusCode() + " at position " + position);
+
+        final HttpResponse<String> ownBooking = send(followerHttp, "GET", "customers/guest@hotel.com/reservations",
+                null, position);
+
+        check("follower reads its own booking", ownBooking.statusCode() == 200
+                && ownBooking.body().contains(dateOf(0)), ownBooking.statusCode() + " " + ownBooking.body());
+
+        final HttpResponse<String> write = send(followerHttp, "POST", "customers",
+                "{\"email\":\"other@hotel.com\",\"firstName\":\"Other\",\"lastName\":\"Guest\"}", null);
+
+        check("follower rejects changes", write.statusCode() == 403, String.valueOf(write.statusCode()));
+
+        String lastPosition = position;
+        int booked = 0;
+
+        for (int index = 1; index <= bookings; index++) {
+            final HttpResponse<String> response = send(leaderHttp, "POST", "reservations",
+                    bookingOf(index % rooms, 1 + index / rooms), null);
+
+            booked += response.statusCode() == 201 ? 1 : 0;
+            lastPosition = response.headers().firstValue(POSITION_HEADER).orElse(lastPosition);
+        }
+
+        check("more bookings on the leader", booked == bookings, booked + " of " + bookings);
+
+        final HttpResponse<String> cancellation = send(leaderHttp, "POST", "reservations/cancel",
+                bookingOf(0, 0), null);
+
+        lastPosition = cancellation.headers().firstValue(POSITION_HEADER).orElse(lastPosition);
+        check("cancellation on the leader", cancellation.statusCode() == 200,
+                String.valueOf(cancellation.statusCode()));
+
+        for (String listing : List.of("admin/rooms", "admin/customers", "admin/reservations")) {
+            final String leaderListing = readAll(leaderHttp, listing, null);
+            final String followerListing = readAll(followerHttp, listing, lastPosition);
+
+            check("follower lists the same " + listing, leaderListing.equals(followerListing),
+                    leaderListing.length() + " and " + followerListing.length() + " characters");
+        }
+
+        leader.destroy();
+        leader.waitFor();
+        processes.remove(leader);
+        startLeader();
+
+        final long stopDeadline = System.currentTimeMillis() + STOP_MILLIS;
+        String replication = "";
+
+        while (!replication.contains("\"stopped\":true") && System.currentTimeMillis() < stopDeadline) {
+            Thread.sleep(100);
+            replication = send(followerHttp, "GET", "admin/replication", null, null).body();
+        }
+
+        check("follower stops after the leader restarted", replication.contains("\"stopped\":true"), replication);
+
+        final HttpResponse<String> stoppedRead = send(followerHttp, "GET", "admin/rooms", null, null);
+
+        check("stopped follower answers 503", stoppedRead.statusCode() == 503,
+                String.valueOf(stoppedRead.statusCode()));
+        check("restarted leader keeps the rooms", readAll(leaderHttp, "admin/rooms", null).contains(
+                "\"roomNumber\":\"" + (rooms - 1) + "\""), "room " + (rooms - 1));
+    }
+
+    private Process startLeader() throws IOException, InterruptedException {
+        return startProcess(List.of("-Dhotel.data=" + data, "-Dhotel.replication.port=" + replicationPort,
+                "HotelApplication", "--http", String.valueOf(leaderHttp)), leaderHttp);
+    }
+
+    /**
+     * Starts the application with the classpath of this test and waits until its API answers.
+     */
+    private Process startProcess(final List<String> arguments, final int httpPort)
+            throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path")));
+
+        command.addAll(arguments);
+
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(data.resolve("process-" + httpPort + ".log").toFile())
+                .start();
+        final long deadline = System.currentTimeMillis() + START_MILLIS;
+
+        processes.add(process);
+
+        while (System.currentTimeMillis() < deadline && process.isAlive()) {
+            try {
+                send(httpPort, "GET", "admin/replication", null, null);
+                return process;
+            } catch (IOException ex) {
+                Thread.sleep(100);
+            }
+        }
+
+        throw new IOException("The process on port " + httpPort + " didn't start, see "
+                + data.resolve("process-" + httpPort + ".log"));
+    }
+
+    private void stopAll() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Reads all pages of a listing, with the position of the last change on a follower.
+     */
+    private String readAll(final int port, final String listing, final String position)
+            throws IOException, InterruptedException {
+        final StringBuilder pages = new StringBuilder();
+        String cursor = "0";
+
+        while (cursor != null) {
+            final String page = send(port, "GET", listing + "?limit=1000&cursor=" + cursor, null, position).body();
+            final Matcher nextCursor = NEXT_CURSOR.matcher(page);
+
+            pages.append(page).append('\n');
+            cursor = nextCursor.find() ? nextCursor.group(1) : null;
+        }
+
+        return pages.toString();
+    }
+
+    private HttpResponse<String> send(final int port, final String method, final String path, final String body,
+                                      final String position) throws IOException, InterruptedException {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + port + "/api/" + path))
+                .timeout(Duration.ofSeconds(10))
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body)
+                        : HttpRequest.BodyPublishers.noBody());
+
+        if (position != null) {
+            request.header(POSITION_HEADER, position);
+        }
+
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String bookingOf(final int room, final int night) {
+        return "{\"email\":\"guest@hotel.com\",\"roomNumber\":\"" + room + "\",\"checkIn\":\"" + dateOf(night)
+                + "\",\"checkOut\":\"" + dateOf(night + 1) + "\"}";
+    }
+
+    private String dateOf(final int night) {
+        return firstNight.plusDays(night).format(DATE_FORMAT);
+    }
+
+    private void check(final String name, final boolean passed, final String details) {
+        System.out.printf("%-45s %s (%s)%n", name, passed ? "ok" : "FAILED", details);
+
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new LinkedHashMap<>();
+
+        for (String arg : args) {
+            final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        return options;
+    }
+}
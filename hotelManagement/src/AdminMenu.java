@@ -1,8 +1,20 @@
-import java.util.Collection;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
 public class AdminMenu {
 
+    private static final String DATE_FORMAT = "MM/dd/yyyy";
+    private static final int CONSOLE_BUFFER_CHARS = 1 << 16;
+    private static final int CUSTOMER_SEARCH_LIMIT = 20;
     private static final AdminResource adminResource = AdminResource.getSingleton();
     private static final Scanner scanner = new Scanner(System.in);
 
@@ -23,13 +35,17 @@ public class AdminMenu {
                         case '2' -> displayAllRooms();
                         case '3' -> displayAllReservations();
                         case '4' -> addRoom();
-                        case '5' -> MainMenu.printMainMenu();
+                        case '5' -> importFile();
+                        case '6' -> displayMetrics();
+                        case '7' -> searchCustomers();
+                        case '8' -> displayManifest();
+                        case '9' -> MainMenu.printMainMenu();
                         default -> System.out.println("Unknown action\n");
                     }
                 } else {
                     System.out.println("Error: Invalid action\n");
                 }
-            } while (line.charAt(0) != '5' || line.length() != 1);
+            } while (line.charAt(0) != '9' || line.length() != 1);
         } catch (StringIndexOutOfBoundsException ex) {
             System.out.println("Empty input received. Exiting program...");
         }
@@ -48,7 +64,11 @@ public class AdminMenu {
                 2. See all Rooms
                 3. See all Reservations
                 4. Add a Room
-                5. Back to Main Menu
+                5. Import Rooms, Customers and Reservations
+                6. See Performance Metrics
+                7. Search Customers
+                8. See Arrivals, Departures and Guests of a Day
+                9. Back to Main Menu
                 --------------------------------------------
                 Please select a number for the menu option:
                 """);
@@ -78,6 +98,24 @@ public class AdminMenu {
         addAnotherRoom();
     }
 
+    /**
+     * This method asks for a file and imports
+     * the rooms, customers and reservations in it.
+     */
+    private static void importFile() {
+        System.out.println("Enter path of the file to import:");
+        final Path file = Path.of(scanner.nextLine());
+
+        try {
+            final ImportReport report = adminResource.importFile(file, System.out::println);
+
+            report.getRejects().forEach(System.out::println);
+            System.out.println("Import finished: " + report);
+        } catch (IOException | InvalidPathException ex) {
+            System.out.println("Error: file could not be read. " + ex.getLocalizedMessage());
+        }
+    }
+
     /**
      * This method ask for the price of
      * the room.
@@ -142,12 +180,16 @@ public class AdminMenu {
      * This method displays all rooms
      */
     private static void displayAllRooms() {
-        Collection<Room> rooms = adminResource.getAllRooms();
+        final BufferedWriter writer = consoleWriter();
 
-        if(rooms.isEmpty()) {
-            System.out.println("No rooms found.");
-        } else {
-            adminResource.getAllRooms().forEach(System.out::println);
+        try {
+            if (adminResource.writeRooms(null, writer) == 0) {
+                writer.write("No rooms found.");
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            System.out.println("Error: rooms could not be displayed. " + ex.getLocalizedMessage());
         }
     }
 
@@ -156,20 +198,172 @@ public class AdminMenu {
      * for the admin.
      */
     private static void displayAllCustomers() {
-        Collection<Customer> customers = adminResource.getAllCustomers();
+        final BufferedWriter writer = consoleWriter();
+
+        try {
+            if (adminResource.writeCustomers(writer) == 0) {
+                writer.write("No customers found.");
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            System.out.println("Error: customers could not be displayed. " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * This method asks for a part of the name or
+     * email and displays the best matching customers
+     */
+    private static void searchCustomers() {
+        System.out.println("Enter the beginning of the first name, last name or email:");
+        final CustomerSearchResult result = adminResource.searchCustomers(scanner.nextLine(), CUSTOMER_SEARCH_LIMIT);
 
-        if (customers.isEmpty()) {
+        if (result.getCustomers().isEmpty()) {
             System.out.println("No customers found.");
         } else {
-            adminResource.getAllCustomers().forEach(System.out::println);
+            result.getCustomers().forEach(System.out::println);
+        }
+
+        if (result.isTruncated()) {
+            System.out.println("The search was stopped early, more customers may match. Enter more of the name.");
         }
     }
 
     /**
-     * This method displays all
-     * reservations
+     * This method asks for a date and an optional room and displays
+     * the arrivals, departures and guests in house of the day
+     * or the guests of the room
+     */
+    private static void displayManifest() {
+        System.out.println("Enter date mm/dd/yyyy or leave empty for today:");
+        final Date enteredDate = enterOptionalDate();
+        final Date date = enteredDate != null ? enteredDate : new Date();
+
+        System.out.println("Enter room number or leave empty for all rooms:");
+        final String roomNumber = scanner.nextLine().trim();
+        final BufferedWriter writer = consoleWriter();
+
+        try {
+            if (!roomNumber.isEmpty()) {
+                writeReservations("Guests of room " + roomNumber + " in the night after " + date,
+                        adminResource.getRoomGuests(roomNumber, date), writer);
+            } else {
+                final DailyManifest manifest = adminResource.getManifest(date);
+
+                writer.write(manifest.toString());
+                writer.newLine();
+                writeReservations("Arrivals", manifest.getArrivals(), writer);
+                writeReservations("Departures", manifest.getDepartures(), writer);
+                writeReservations("In house", manifest.getInHouse(), writer);
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            System.out.println("Error: manifest could not be displayed. " + ex.getLocalizedMessage());
+        }
+    }
+
+    private static void writeReservations(final String title, final List<Reservation> reservations,
+                                          final BufferedWriter writer) throws IOException {
+        writer.newLine();
+        writer.write(title + ":");
+        writer.newLine();
+
+        if (reservations.isEmpty()) {
+            writer.write("No reservations found.");
+            writer.newLine();
+        }
+
+        for (Reservation reservation : reservations) {
+            writer.write(reservation.toString());
+            writer.newLine();
+            writer.newLine();
+        }
+    }
+
+    /**
+     * This method displays the latency percentiles
+     * of all operations and the size of the hotel
+     */
+    private static void displayMetrics() {
+        System.out.print(adminResource.getMetricsSummary());
+    }
+
+    /**
+     * This method asks for the filters and
+     * displays the matching reservations
      */
     private static void displayAllReservations() {
-        adminResource.displayAllReservations();
+        System.out.println("Enter first date mm/dd/yyyy or leave empty for all dates:");
+        final Date fromDate = enterOptionalDate();
+
+        System.out.println("Enter last date mm/dd/yyyy or leave empty for all dates:");
+        final Date toDate = enterOptionalDate();
+
+        System.out.println("Enter room type: 1 for single bed, 2 for double bed or leave empty for all rooms:");
+        final String roomType = scanner.nextLine().trim();
+
+        System.out.println("Enter email of the customer or leave empty for all customers:");
+        final String customerEmail = scanner.nextLine().trim();
+
+        final ReservationFilter filter = new ReservationFilter(fromDate,
+                toDate != null ? addOneDay(toDate) : null,
+                roomType.isEmpty() ? null : enterRoomType(roomType),
+                customerEmail.isEmpty() ? null : customerEmail);
+        final BufferedWriter writer = consoleWriter();
+
+        try {
+            if (adminResource.writeReservations(filter, writer) == 0) {
+                writer.write("No reservations found.");
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            System.out.println("Error: reservations could not be displayed. " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * This method gets an optional date, an invalid date is asked again.
+     * @return the date or null when the input is empty
+     */
+    private static Date enterOptionalDate() {
+        final String date = scanner.nextLine().trim();
+
+        if (date.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new SimpleDateFormat(DATE_FORMAT).parse(date);
+        } catch (ParseException ex) {
+            System.out.println("Error: Invalid date. Please, enter mm/dd/yyyy or leave empty:");
+            return enterOptionalDate();
+        }
+    }
+
+    private static RoomType enterRoomType(final String label) {
+        try {
+            return RoomType.valueOfLabel(label);
+        } catch (IllegalArgumentException exp) {
+            System.out.println("Invalid room type! Please, choose 1 for single bed or 2 for double bed:");
+            return enterRoomType();
+        }
+    }
+
+    private static Date addOneDay(final Date date) {
+        final Calendar calendar = Calendar.getInstance();
+
+        calendar.setTime(date);
+        calendar.add(Calendar.DATE, 1);
+        return calendar.getTime();
+    }
+
+    /**
+     * Writes to the console through a buffer, it is flushed but never closed.
+     * @return the writer
+     */
+    private static BufferedWriter consoleWriter() {
+        return new BufferedWriter(new OutputStreamWriter(System.out), CONSOLE_BUFFER_CHARS);
     }
 }
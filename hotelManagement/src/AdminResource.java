@@ -1,9 +1,50 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 public class AdminResource {
 
     private static final AdminResource SINGLETON = new AdminResource();
+    private static final int LISTING_PAGE_SIZE = 1000;
+    private static final OperationMetrics ADD_ROOM =
+            HotelMetrics.getSingleton().operation("AdminResource.addRoom");
+    private static final OperationMetrics IMPORT_FILE =
+            HotelMetrics.getSingleton().operation("AdminResource.importFile");
+    private static final OperationMetrics GET_ALL_ROOMS =
+            HotelMetrics.getSingleton().operation("AdminResource.getAllRooms");
+    private static final OperationMetrics GET_ALL_CUSTOMERS =
+            HotelMetrics.getSingleton().operation("AdminResource.getAllCustomers");
+    private static final OperationMetrics GET_ALL_RESERVATIONS =
+            HotelMetrics.getSingleton().operation("AdminResource.getAllReservations");
+    private static final OperationMetrics GET_RESERVATIONS =
+            HotelMetrics.getSingleton().operation("AdminResource.getReservations");
+    private static final OperationMetrics GET_ROOMS =
+            HotelMetrics.getSingleton().operation("AdminResource.getRooms");
+    private static final OperationMetrics GET_CUSTOMERS =
+            HotelMetrics.getSingleton().operation("AdminResource.getCustomers");
+    private static final OperationMetrics SEARCH_CUSTOMERS =
+            HotelMetrics.getSingleton().operation("AdminResource.searchCustomers");
+    private static final OperationMetrics GET_MANIFEST =
+            HotelMetrics.getSingleton().operation("AdminResource.getManifest");
+    private static final OperationMetrics GET_ROOM_GUESTS =
+            HotelMetrics.getSingleton().operation("AdminResource.getRoomGuests");
+    private static final OperationMetrics GET_OCCUPANCY_STATISTICS =
+            HotelMetrics.getSingleton().operation("AdminResource.getOccupancyStatistics");
+    private static final OperationMetrics WRITE_RESERVATIONS =
+            HotelMetrics.getSingleton().operation("AdminResource.writeReservations");
+    private static final OperationMetrics WRITE_ROOMS =
+            HotelMetrics.getSingleton().operation("AdminResource.writeRooms");
+    private static final OperationMetrics WRITE_CUSTOMERS =
+            HotelMetrics.getSingleton().operation("AdminResource.writeCustomers");
+    private static final OperationMetrics GET_METRICS_SUMMARY =
+            HotelMetrics.getSingleton().operation("AdminResource.getMetricsSummary");
 
     private final CustomerService customerService = CustomerService.getSingleton();
     private final ReservationService reservationService = ReservationService.getSingleton();
@@ -15,18 +56,245 @@ public class AdminResource {
     }
 
     public void addRoom(List<Room> rooms) {
-        rooms.forEach(reservationService::addRoom);
+        final long start = System.nanoTime();
+
+        try {
+            reservationService.addRooms(rooms);
+        } finally {
+            ADD_ROOM.record(start);
+        }
+    }
+
+    /**
+     * Imports rooms, customers and reservations from a file
+     * with one record per line.
+     * @param file which is imported
+     * @param progress gets the report after every chunk
+     * @return report of the whole import
+     * @throws IOException when the file can't be read
+     */
+    public ImportReport importFile(Path file, Consumer<ImportReport> progress) throws IOException {
+        final long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return new HotelImporter().importLines(reader, progress);
+        } finally {
+            IMPORT_FILE.record(start);
+        }
     }
 
     public Collection<Room> getAllRooms() {
-        return reservationService.getAllRooms();
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getAllRooms();
+        } finally {
+            GET_ALL_ROOMS.record(start);
+        }
     }
 
     public Collection<Customer> getAllCustomers() {
-        return customerService.getAllCustomers();
+        final long start = System.nanoTime();
+
+        try {
+            return customerService.getAllCustomers();
+        } finally {
+            GET_ALL_CUSTOMERS.record(start);
+        }
+    }
+
+    public Collection<Reservation> getAllReservations() {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getAllReservations();
+        } finally {
+            GET_ALL_RESERVATIONS.record(start);
+        }
+    }
+
+    public Page<Reservation> getReservations(ReservationFilter filter, int cursor, int limit) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getReservations(filter, cursor, limit);
+        } finally {
+            GET_RESERVATIONS.record(start);
+        }
+    }
+
+    public Page<Room> getRooms(RoomType roomType, int cursor, int limit) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getRooms(roomType, cursor, limit);
+        } finally {
+            GET_ROOMS.record(start);
+        }
+    }
+
+    public Page<Customer> getCustomers(int cursor, int limit) {
+        final long start = System.nanoTime();
+
+        try {
+            return customerService.getCustomers(cursor, limit);
+        } finally {
+            GET_CUSTOMERS.record(start);
+        }
+    }
+
+    /**
+     * Searches customers by the beginning of their names or email, names may contain typos.
+     * @param query one or more words, e.g. "jane smi"
+     * @param limit maximal number of customers
+     * @return the customers, the best matches first
+     */
+    public CustomerSearchResult searchCustomers(String query, int limit) {
+        final long start = System.nanoTime();
+
+        try {
+            return customerService.searchCustomers(query, limit);
+        } finally {
+            SEARCH_CUSTOMERS.record(start);
+        }
+    }
+
+    /**
+     * Gets the arrivals, departures and guests in house of a day.
+     * @param date any time of the day
+     * @return the manifest of the day
+     */
+    public DailyManifest getManifest(Date date) {
+        final long start = System.nanoTime();
+
+        try {
+            return new DailyManifest(date, reservationService.getArrivals(date),
+                    reservationService.getDepartures(date), reservationService.getInHouse(date));
+        } finally {
+            GET_MANIFEST.record(start);
+        }
     }
 
-    public void displayAllReservations() {
-        reservationService.printAllReservation();
+    /**
+     * Gets the reservations of the guests who stay in the room over the night.
+     * @param roomNumber number of the room
+     * @param night any time of the day before the night
+     * @return the reservations, usually one or none
+     */
+    public List<Reservation> getRoomGuests(String roomNumber, Date night) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getInHouse(roomNumber, night);
+        } finally {
+            GET_ROOM_GUESTS.record(start);
+        }
+    }
+
+    /**
+     * Calculates occupancy rate, sold room nights, ADR and RevPAR
+     * of every room type per day, week or month.
+     * @param fromDate first night of the report
+     * @param toDate day after the last night of the report
+     * @param period length of the periods
+     * @return the statistics ordered by period and room type
+     */
+    public List<OccupancyStatistics> getOccupancyStatistics(Date fromDate, Date toDate, ReportPeriod period) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getOccupancyStatistics(fromDate, toDate, period);
+        } finally {
+            GET_OCCUPANCY_STATISTICS.record(start);
+        }
+    }
+
+    /**
+     * Writes the reservations which match the filter page by page,
+     * so only one page is in memory at a time.
+     * @param filter selects the reservations
+     * @param writer gets every reservation followed by an empty line
+     * @return number of written reservations
+     * @throws IOException when the writer fails
+     */
+    public long writeReservations(ReservationFilter filter, BufferedWriter writer) throws IOException {
+        final long start = System.nanoTime();
+
+        try {
+            return writePages(
+                    cursor -> reservationService.getReservations(filter, cursor, LISTING_PAGE_SIZE), writer, 2);
+        } finally {
+            WRITE_RESERVATIONS.record(start);
+        }
+    }
+
+    /**
+     * Writes the rooms page by page.
+     * @param roomType type of the rooms or null for all rooms
+     * @param writer gets every room on its own line
+     * @return number of written rooms
+     * @throws IOException when the writer fails
+     */
+    public long writeRooms(RoomType roomType, BufferedWriter writer) throws IOException {
+        final long start = System.nanoTime();
+
+        try {
+            return writePages(cursor -> reservationService.getRooms(roomType, cursor, LISTING_PAGE_SIZE), writer, 1);
+        } finally {
+            WRITE_ROOMS.record(start);
+        }
+    }
+
+    /**
+     * Writes the customers page by page.
+     * @param writer gets every customer on its own line
+     * @return number of written customers
+     * @throws IOException when the writer fails
+     */
+    public long writeCustomers(BufferedWriter writer) throws IOException {
+        final long start = System.nanoTime();
+
+        try {
+            return writePages(cursor -> customerService.getCustomers(cursor, LISTING_PAGE_SIZE), writer, 1);
+        } finally {
+            WRITE_CUSTOMERS.record(start);
+        }
+    }
+
+    /**
+     * Gets a summary of the latencies of all operations and the size of the hotel.
+     * @return the summary as table
+     */
+    public String getMetricsSummary() {
+        final long start = System.nanoTime();
+
+        try {
+            return HotelMetrics.getSingleton().getSummary();
+        } finally {
+            GET_METRICS_SUMMARY.record(start);
+        }
+    }
+
+    private static <T> long writePages(IntFunction<Page<T>> pages, BufferedWriter writer, int newLines)
+            throws IOException {
+        long written = 0;
+        int cursor = 0;
+
+        do {
+            final Page<T> page = pages.apply(cursor);
+
+            for (T item : page.getItems()) {
+                writer.write(item.toString());
+
+                for (int newLine = 0; newLine < newLines; newLine++) {
+                    writer.newLine();
+                }
+            }
+
+            written += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != Page.END);
+
+        return written;
     }
 }
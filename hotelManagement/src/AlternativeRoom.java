@@ -0,0 +1,47 @@
+import java.util.Date;
+
+/**
+ * A room which is free for the same length of stay on other dates
+ * than the wished ones.
+ */
+public class AlternativeRoom {
+
+    private final Room room;
+    private final Date checkInDate;
+    private final Date checkOutDate;
+    private final int offsetDays;
+
+    public AlternativeRoom(final Room room, final Date checkInDate, final Date checkOutDate, final int offsetDays) {
+        this.room = room;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.offsetDays = offsetDays;
+    }
+
+    public Room getRoom() {
+        return this.room;
+    }
+
+    public Date getCheckInDate() {
+        return this.checkInDate;
+    }
+
+    public Date getCheckOutDate() {
+        return this.checkOutDate;
+    }
+
+    /**
+     * Gets the days between the wished and the alternative check-in,
+     * negative when the alternative is earlier.
+     * @return offset in days
+     */
+    public int getOffsetDays() {
+        return this.offsetDays;
+    }
+
+    public String toString() {
+        return "Room Number: " + this.room.getRoomNumber()
+                + " Check-In Date: " + this.checkInDate
+                + " Check-Out Date: " + this.checkOutDate;
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Caches the available rooms of the most recently searched date ranges.
+ * The least recently used range is evicted when the cache is full.
+ * Changes only remove the ranges they affect: a booking the ranges which
+ * overlap with its dates and had the room available, a cancellation the
+ * ranges which overlap with its dates and didn't have the room available,
+ * a new or changed room the ranges in which it is or was available.
+ * A search which ran while something changed is not cached, because it
+ * may or may not have seen the change.
+ */
+public class AvailabilityCache implements AvailabilityCacheMBean {
+
+    private final int capacity;
+    private final Map<Range, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long generation;
+
+    public AvailabilityCache(final int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true);
+    }
+
+    /**
+     * Gets the cached rooms of the range.
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return the available rooms or null when the range isn't cached
+     */
+    public synchronized List<Room> get(final long checkIn, final long checkOut) {
+        final Entry entry = entries.get(new Range(checkIn, checkOut));
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.rooms;
+    }
+
+    /**
+     * Gets the generation which has to be passed to {@link #put}, it has
+     * to be read before the search starts.
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Caches the result of a search unless something changed since the search started.
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @param rooms which are available, they must not be changed anymore
+     * @param roomIds ids of the available rooms, e.g. their indexes in a shard
+     * @param searchGeneration generation read before the search
+     */
+    public synchronized void put(final long checkIn, final long checkOut, final List<Room> rooms,
+                                 final BitSet roomIds, final long searchGeneration) {
+        if (searchGeneration != generation || capacity <= 0) {
+            return;
+        }
+
+        entries.put(new Range(checkIn, checkOut), new Entry(rooms, roomIds));
+
+        if (entries.size() > capacity) {
+            final Iterator<Range> eldest = entries.keySet().iterator();
+
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes the ranges which overlap with a booking of the room.
+     * @param roomId id of the booked room
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     */
+    public synchronized void invalidateBooking(final int roomId, final long checkIn, final long checkOut) {
+        invalidateIf((range, entry) -> range.checkIn < checkOut && range.checkOut > checkIn
+                && entry.roomIds.get(roomId));
+    }
+
+    /**
+     * Removes the ranges which overlap with a cancelled reservation of the room.
+     * @param roomId id of the room which may be free now
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     */
+    public synchronized void invalidateCancellation(final int roomId, final long checkIn, final long checkOut) {
+        invalidateIf((range, entry) -> range.checkIn < checkOut && range.checkOut > checkIn
+                && !entry.roomIds.get(roomId));
+    }
+
+    /**
+     * Removes the ranges in which the room was available or is available now.
+     * @param roomId id of the added or changed room
+     * @param isAvailable checks if the room is available from the check-in millis to the check-out millis
+     */
+    public synchronized void invalidateRoom(final int roomId, final RangeCheck isAvailable) {
+        invalidateIf((range, entry) -> entry.roomIds.get(roomId) || isAvailable.test(range.checkIn, range.checkOut));
+    }
+
+    /**
+     * Removes all ranges, e.g. after many reservations were added at once.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    private void invalidateIf(final BiPredicate<Range, Entry> affected) {
+        generation++;
+
+        final Iterator<Map.Entry<Range, Entry>> iterator = entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            final Map.Entry<Range, Entry> entry = iterator.next();
+
+            if (affected.test(entry.getKey(), entry.getValue())) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Checks a date range given as millis.
+     */
+    public interface RangeCheck {
+        boolean test(long checkIn, long checkOut);
+    }
+
+    private static class Range {
+
+        private final long checkIn;
+        private final long checkOut;
+
+        private Range(final long checkIn, final long checkOut) {
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof final Range range && range.checkIn == checkIn && range.checkOut == checkOut;
+        }
+
+        public int hashCode() {
+            return 31 * Long.hashCode(checkIn) + Long.hashCode(checkOut);
+        }
+    }
+
+    private static class Entry {
+
+        private final List<Room> rooms;
+        private final BitSet roomIds;
+
+        private Entry(final List<Room> rooms, final BitSet roomIds) {
+            this.rooms = rooms;
+            this.roomIds = roomIds;
+        }
+    }
+}
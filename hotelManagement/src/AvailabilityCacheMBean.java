@@ -0,0 +1,15 @@
+/**
+ * Management interface of the statistics of the availability cache.
+ */
+public interface AvailabilityCacheMBean {
+
+    int getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+}
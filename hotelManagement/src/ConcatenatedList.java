@@ -0,0 +1,53 @@
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable view of several lists one after the other, e.g. the
+ * results of the shards of a search, so they don't have to be copied.
+ * @param <T> type of the elements
+ */
+public class ConcatenatedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<? extends List<? extends T>> lists;
+    private final int[] ends;
+
+    public ConcatenatedList(final List<? extends List<? extends T>> lists) {
+        this.lists = lists;
+        this.ends = new int[lists.size()];
+
+        int size = 0;
+
+        for (int index = 0; index < ends.length; index++) {
+            size += lists.get(index).size();
+            ends[index] = size;
+        }
+    }
+
+    @Override
+    public T get(final int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        int low = 0;
+        int high = ends.length - 1;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (ends[middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return lists.get(low).get(index - (low > 0 ? ends[low - 1] : 0));
+    }
+
+    @Override
+    public int size() {
+        return ends.length > 0 ? ends[ends.length - 1] : 0;
+    }
+}
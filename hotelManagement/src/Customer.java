@@ -3,6 +3,7 @@ import java.util.regex.Pattern;
 public class Customer {
 
     private static final String EMAIL_REGEX_PATTERN = "^(.+)@(.+).(.+)$";
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX_PATTERN);
 
     private final String firstName;
     private final String lastName;
@@ -21,13 +22,28 @@ public class Customer {
      * @param email that needs the validation
      */
     private void isValidEmail(final String email) {
-        Pattern pattern = Pattern.compile(EMAIL_REGEX_PATTERN);
-
-        if(!pattern.matcher(email).matches()) {
+        if(!isValidEmailAddress(email)) {
             throw new IllegalArgumentException("Invalid email");
         }
     }
 
+    /**
+     * Checks the email with the shared precompiled pattern.
+     * @param email that needs the validation
+     * @return true when the email is valid
+     */
+    public static boolean isValidEmailAddress(final String email) {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
     public String getEmail() {
         return this.email;
     }
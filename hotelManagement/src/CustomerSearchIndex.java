@@ -0,0 +1,477 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Search index over the first names, last names and emails of the customers.
+ * Words are compared without case and accents, so "muller" finds "M&uuml;ller".
+ * <ul>
+ * <li>Prefixes are found in a sorted map from every word to the ids of its customers.</li>
+ * <li>Typos in names are found in a trie of the distinct names, which is walked with
+ * the rows of the edit distance to the query word and left as soon as a row exceeds
+ * the allowed typos. One typo is allowed in words up to 5 letters, two in longer ones.</li>
+ * </ul>
+ * The index is updated on every added customer. The candidates are checked against
+ * the current words of the customer, so entries of changed customers don't need to be removed.
+ * A customer who is added again, e.g. from the snapshot and the journal, only adds its new words.
+ */
+public class CustomerSearchIndex {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[\\s,;]+");
+    private static final int CANDIDATE_LIMIT = 2_000;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final ConcurrentNavigableMap<String, IntList> customersByWord = new ConcurrentSkipListMap<>();
+    private final NameTrie names = new NameTrie();
+    private final IdArray<String[]> wordsByCustomer = new IdArray<>();
+
+    /**
+     * Adds the words of the customer to the index, words which are
+     * already indexed for the customer are not added a second time.
+     * @param customerId id of the customer
+     * @param customer which is added
+     */
+    public void add(final int customerId, final Customer customer) {
+        final List<String> nameWords = nameWordsOf(customer);
+        final String[] indexedWords = wordsByCustomer.get(customerId);
+        final String[] words = new String[nameWords.size() + 1];
+
+        for (int index = 0; index < nameWords.size(); index++) {
+            words[index] = names.add(nameWords.get(index));
+        }
+
+        words[nameWords.size()] = normalize(customer.getEmail());
+
+        for (int index = 0; index < words.length; index++) {
+            if (!contains(indexedWords, words[index]) && !contains(words, index, words[index])) {
+                addWord(words[index], customerId);
+            }
+        }
+
+        wordsByCustomer.set(customerId, words);
+    }
+
+    private static boolean contains(final String[] words, final String word) {
+        return words != null && contains(words, words.length, word);
+    }
+
+    /**
+     * Checks if one of the first words equals the word, e.g. a first name which is also the last name.
+     */
+    private static boolean contains(final String[] words, final int count, final String word) {
+        for (int index = 0; index < count; index++) {
+            if (words[index].equals(word)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addWord(final String word, final int customerId) {
+        final IntList customerIds = customersByWord.computeIfAbsent(word, newWord -> new IntList(1));
+
+        synchronized (customerIds) {
+            customerIds.add(customerId);
+        }
+    }
+
+    /**
+     * Searches customers whose words start with the words of the query or are
+     * similar to them. Every word of the query has to match a word of the customer.
+     * The candidates are taken from the query word with the fewest customers:
+     * first the customers of the words which start with it in alphabetical order,
+     * then those of the names with one and two typos. The search stops at the
+     * limit, or after {@link #CANDIDATE_LIMIT} candidates when the other query
+     * words rarely match, then the result is truncated.
+     * @param query e.g. "jane smi" or "jane@"
+     * @param limit maximal number of customers
+     * @param customers gets the customer of an id
+     * @return the customers, those with fewer typos first
+     */
+    public CustomerSearchResult search(final String query, final int limit, final IntFunction<Customer> customers) {
+        final List<String> terms = wordsOf(query);
+
+        if (terms.isEmpty() || limit <= 0) {
+            return new CustomerSearchResult(Collections.emptyList(), false);
+        }
+
+        final String term = mostSelectiveTermOf(terms);
+        final Matches matches = new Matches(terms, limit, customers);
+
+        for (IntList customerIds : customersByWord.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+            if (matches.addAll(customerIds)) {
+                return matches.sorted();
+            }
+        }
+
+        for (String name : similarNamesOf(term)) {
+            if (matches.addAll(customersByWord.get(name))) {
+                break;
+            }
+        }
+
+        return matches.sorted();
+    }
+
+    /**
+     * Gets the term whose words and similar names have the fewest customers.
+     */
+    private String mostSelectiveTermOf(final List<String> terms) {
+        String selectiveTerm = terms.get(0);
+        long fewestCustomers = Long.MAX_VALUE;
+
+        for (int index = 0; index < terms.size() && terms.size() > 1; index++) {
+            final String term = terms.get(index);
+            long customerCount = 0;
+
+            for (IntList customerIds : customersByWord.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+                customerCount += sizeOf(customerIds);
+
+                if (customerCount >= fewestCustomers) {
+                    break;
+                }
+            }
+
+            for (String name : similarNamesOf(term)) {
+                customerCount += sizeOf(customersByWord.get(name));
+            }
+
+            if (customerCount < fewestCustomers) {
+                selectiveTerm = term;
+                fewestCustomers = customerCount;
+            }
+        }
+
+        return selectiveTerm;
+    }
+
+    private static int sizeOf(final IntList customerIds) {
+        synchronized (customerIds) {
+            return customerIds.size();
+        }
+    }
+
+    /**
+     * Gets the names with at most {@link #maxTyposOf} typos which don't start with the term,
+     * ordered by their number of typos.
+     */
+    private List<String> similarNamesOf(final String term) {
+        if (term.length() < 3) {
+            return Collections.emptyList();
+        }
+
+        final Map<String, Integer> similarNames = names.findSimilar(term, maxTyposOf(term));
+
+        similarNames.keySet().removeIf(name -> name.startsWith(term));
+
+        final List<String> sortedNames = new ArrayList<>(similarNames.keySet());
+
+        sortedNames.sort(Comparator.comparing(similarNames::get));
+        return sortedNames;
+    }
+
+    /**
+     * Gets the number of typos with which all terms match words of a customer.
+     * @param words the names followed by the email of the customer
+     * @return the sum of the typos or {@link #NO_MATCH}
+     */
+    private static int typosOf(final List<String> terms, final String[] words) {
+        final String email = words[words.length - 1];
+        int typos = 0;
+
+        for (String term : terms) {
+            int bestTypos = email.startsWith(term) ? 0 : NO_MATCH;
+
+            for (int index = 0; index < words.length - 1 && bestTypos > 0; index++) {
+                if (words[index].startsWith(term)) {
+                    bestTypos = 0;
+                } else if (term.length() >= 3) {
+                    bestTypos = Math.min(bestTypos, editDistance(term, words[index], maxTyposOf(term)));
+                }
+            }
+
+            if (bestTypos > maxTyposOf(term)) {
+                return NO_MATCH;
+            }
+
+            typos += bestTypos;
+        }
+
+        return typos;
+    }
+
+    private static int maxTyposOf(final String term) {
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Calculates the edit distance with insertions, deletions, substitutions
+     * and swaps of neighbouring letters.
+     * @return the distance or a value above the maximum when it is exceeded
+     */
+    private static int editDistance(final String first, final String second, final int maxDistance) {
+        if (Math.abs(first.length() - second.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+
+        int[] beforePrevious = new int[second.length() + 1];
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+
+        for (int column = 0; column <= second.length(); column++) {
+            previous[column] = column;
+        }
+
+        for (int row = 1; row <= first.length(); row++) {
+            int rowMinimum = current[0] = row;
+
+            for (int column = 1; column <= second.length(); column++) {
+                final int cost = first.charAt(row - 1) == second.charAt(column - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[column] + 1, current[column - 1] + 1),
+                        previous[column - 1] + cost);
+
+                if (row > 1 && column > 1 && first.charAt(row - 1) == second.charAt(column - 2)
+                        && first.charAt(row - 2) == second.charAt(column - 1)) {
+                    distance = Math.min(distance, beforePrevious[column - 2] + 1);
+                }
+
+                current[column] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+
+            final int[] reused = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = reused;
+        }
+
+        return previous[second.length()];
+    }
+
+    private static List<String> nameWordsOf(final Customer customer) {
+        final List<String> words = wordsOf(customer.getFirstName());
+
+        words.addAll(wordsOf(customer.getLastName()));
+        return words;
+    }
+
+    private static List<String> wordsOf(final String text) {
+        final List<String> words = new ArrayList<>();
+
+        if (text == null) {
+            return words;
+        }
+
+        for (String word : WORD_SEPARATORS.split(normalize(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+
+        return words;
+    }
+
+    private static String normalize(final String text) {
+        return ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Trie of the distinct names. Names are added under the lock of the trie,
+     * the children of a node are replaced by a copy so that searches don't lock.
+     */
+    private static class NameTrie {
+
+        private final Node root = new Node('\0');
+
+        /**
+         * Adds the name when it is new.
+         * @return the name of the trie which equals the added name
+         */
+        private synchronized String add(final String name) {
+            Node node = root;
+
+            for (int index = 0; index < name.length(); index++) {
+                node = node.childOrAdd(name.charAt(index));
+            }
+
+            if (node.name == null) {
+                node.name = name;
+            }
+
+            return node.name;
+        }
+
+        /**
+         * Finds the names whose edit distance to the term is at most the maximum.
+         * @return the names with their distance
+         */
+        private Map<String, Integer> findSimilar(final String term, final int maxTypos) {
+            final Map<String, Integer> similarNames = new HashMap<>();
+            final int[] firstRow = new int[term.length() + 1];
+
+            for (int column = 0; column <= term.length(); column++) {
+                firstRow[column] = column;
+            }
+
+            for (Node child : root.children) {
+                findSimilar(child, term, maxTypos, '\0', firstRow, null, similarNames);
+            }
+
+            return similarNames;
+        }
+
+        /**
+         * Calculates the row of the node from the rows of its parent and grandparent,
+         * swapped neighbouring letters are one typo.
+         */
+        private static void findSimilar(final Node node, final String term, final int maxTypos,
+                                        final char parentLetter, final int[] parentRow, final int[] grandparentRow,
+                                        final Map<String, Integer> similarNames) {
+            final int[] row = new int[parentRow.length];
+            int rowMinimum = row[0] = parentRow[0] + 1;
+
+            for (int column = 1; column < row.length; column++) {
+                final char letter = term.charAt(column - 1);
+                int distance = Math.min(Math.min(parentRow[column] + 1, row[column - 1] + 1),
+                        parentRow[column - 1] + (letter == node.letter ? 0 : 1));
+
+                if (grandparentRow != null && column > 1 && letter == parentLetter
+                        && term.charAt(column - 2) == node.letter) {
+                    distance = Math.min(distance, grandparentRow[column - 2] + 1);
+                }
+
+                row[column] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+
+            if (node.name != null && row[row.length - 1] <= maxTypos) {
+                similarNames.put(node.name, row[row.length - 1]);
+            }
+
+            if (rowMinimum <= maxTypos) {
+                for (Node child : node.children) {
+                    findSimilar(child, term, maxTypos, node.letter, row, parentRow, similarNames);
+                }
+            }
+        }
+
+        private static class Node {
+
+            private static final Node[] NO_CHILDREN = new Node[0];
+
+            private final char letter;
+            private volatile Node[] children = NO_CHILDREN;
+            private volatile String name;
+
+            private Node(final char letter) {
+                this.letter = letter;
+            }
+
+            private Node childOrAdd(final char childLetter) {
+                for (Node child : children) {
+                    if (child.letter == childLetter) {
+                        return child;
+                    }
+                }
+
+                final Node child = new Node(childLetter);
+                final Node[] grown = Arrays.copyOf(children, children.length + 1);
+
+                grown[children.length] = child;
+                children = grown;
+                return child;
+            }
+        }
+    }
+
+    /**
+     * Customers which match all terms, collected until the limit is reached.
+     */
+    private class Matches {
+
+        private final List<String> terms;
+        private final int limit;
+        private final IntFunction<Customer> customers;
+        private final Set<Integer> candidates = new HashSet<>();
+        private final List<ScoredCustomer> matches = new ArrayList<>();
+        private boolean truncated;
+
+        private Matches(final List<String> terms, final int limit, final IntFunction<Customer> customers) {
+            this.terms = terms;
+            this.limit = limit;
+            this.customers = customers;
+        }
+
+        /**
+         * Adds the customers of a word which match all terms.
+         * @return true when enough customers are found or too many candidates are checked
+         */
+        private boolean addAll(final IntList customerIds) {
+            synchronized (customerIds) {
+                for (int index = 0; index < customerIds.size(); index++) {
+                    if (candidates.add(customerIds.get(index))) {
+                        add(customerIds.get(index));
+                    }
+
+                    if (matches.size() >= limit) {
+                        return true;
+                    }
+                    if (candidates.size() >= CANDIDATE_LIMIT) {
+                        truncated = true;
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private void add(final int customerId) {
+            final String[] words = wordsByCustomer.get(customerId);
+            final int typos = words != null ? typosOf(terms, words) : NO_MATCH;
+            final Customer customer = typos != NO_MATCH ? customers.apply(customerId) : null;
+
+            if (customer != null) {
+                matches.add(new ScoredCustomer(customer, typos));
+            }
+        }
+
+        private CustomerSearchResult sorted() {
+            final List<Customer> sortedCustomers = new ArrayList<>(matches.size());
+
+            matches.sort(Comparator.comparingInt(match -> match.typos));
+            matches.forEach(match -> sortedCustomers.add(match.customer));
+            return new CustomerSearchResult(sortedCustomers, truncated);
+        }
+    }
+
+    private static class ScoredCustomer {
+
+        private final Customer customer;
+        private final int typos;
+
+        private ScoredCustomer(final Customer customer, final int typos) {
+            this.customer = customer;
+            this.typos = typos;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import java.util.List;
+
+/**
+ * The customers which a search found. A search which checked the most
+ * candidates it may check before it reached its limit is truncated,
+ * more customers may match and the query should be more specific.
+ */
+public class CustomerSearchResult {
+
+    private final List<Customer> customers;
+    private final boolean truncated;
+
+    public CustomerSearchResult(final List<Customer> customers, final boolean truncated) {
+        this.customers = customers;
+        this.truncated = truncated;
+    }
+
+    public List<Customer> getCustomers() {
+        return this.customers;
+    }
+
+    public boolean isTruncated() {
+        return this.truncated;
+    }
+}
@@ -1,12 +1,15 @@
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 public class CustomerService {
 
     private static final CustomerService SINGLETON = new CustomerService();
 
-    private final Map<String, Customer> customers = new HashMap<>();
+    private final IdDictionary<Customer> customers = new IdDictionary<>();
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    private final ReservationFeed feed = ReservationFeed.getSingleton();
+    private volatile ReservationJournal journal;
 
     private CustomerService() {}
 
@@ -14,15 +17,130 @@ public class CustomerService {
         return SINGLETON;
     }
 
+    public void setJournal(final ReservationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Adds a customer. It is recorded in the journal before it can be found,
+     * so a booking of the customer always follows the customer in the journal.
+     * @param email of the customer
+     * @param firstName of the customer
+     * @param lastName of the customer
+     */
     public void addCustomer(final String email, final String firstName, final String lastName) {
-        customers.put(email, new Customer(firstName, lastName, email));
+        final Customer customer = new Customer(firstName, lastName, email);
+        final ReservationJournal journal = this.journal;
+        final long journalPosition = journal != null ? journal.recordCustomer(customer) : 0;
+
+        searchIndex.add(customers.put(email, customer), customer);
+        feed.publishCustomer(customer);
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+    }
+
+    /**
+     * Adds many customers at once, the journal is committed once for all of them.
+     * All of them are recorded before the first one can be found.
+     * @param newCustomers which are added
+     */
+    public void addCustomers(final Collection<Customer> newCustomers) {
+        final ReservationJournal journal = this.journal;
+        long journalPosition = 0;
+
+        if (journal != null) {
+            for (Customer customer : newCustomers) {
+                journalPosition = journal.recordCustomer(customer);
+            }
+        }
+
+        for (Customer customer : newCustomers) {
+            searchIndex.add(customers.put(customer.getEmail(), customer), customer);
+            feed.publishCustomer(customer);
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
     }
 
     public Customer getCustomer(final String customerEmail) {
         return customers.get(customerEmail);
     }
 
+    public Customer getCustomer(final int customerId) {
+        return customers.get(customerId);
+    }
+
+    /**
+     * Gets the id of the customer, customers which are booked before
+     * they are added get their id on the first booking.
+     * @param customerEmail email of the customer
+     * @return id of the customer
+     */
+    public int getCustomerId(final String customerEmail) {
+        return customers.intern(customerEmail);
+    }
+
+    /**
+     * Gets the id of the customer without assigning one.
+     * @param customerEmail email of the customer
+     * @return id of the customer or -1 when the customer has no id
+     */
+    public int findCustomerId(final String customerEmail) {
+        return customers.getId(customerEmail);
+    }
+
+    /**
+     * Gets a page of the customers in the order they were added.
+     * @param cursor 0 for the first page or the cursor of the previous page
+     * @param limit maximal number of customers of the page
+     * @return the page
+     */
+    public Page<Customer> getCustomers(final int cursor, final int limit) {
+        final int size = customers.size();
+        final List<Customer> page = new ArrayList<>(Math.min(limit, size));
+        int customerId = Math.max(cursor, 0);
+
+        for (; customerId < size && page.size() < limit; customerId++) {
+            final Customer customer = customers.get(customerId);
+
+            if (customer != null) {
+                page.add(customer);
+            }
+        }
+
+        return new Page<>(page, customerId < size ? customerId : Page.END);
+    }
+
+    /**
+     * Searches customers by the beginning of their names or email, names may contain typos.
+     * @param query one or more words, e.g. "jane smi"
+     * @param limit maximal number of customers
+     * @return the customers, the best matches first
+     */
+    public CustomerSearchResult searchCustomers(final String query, final int limit) {
+        return searchIndex.search(query, limit, customers::get);
+    }
+
+    public int getCustomerCount() {
+        return customers.getValueCount();
+    }
+
     public Collection<Customer> getAllCustomers() {
-        return customers.values();
+        final int size = customers.size();
+        final List<Customer> allCustomers = new ArrayList<>(size);
+
+        for (int customerId = 0; customerId < size; customerId++) {
+            final Customer customer = customers.get(customerId);
+
+            if (customer != null) {
+                allCustomers.add(customer);
+            }
+        }
+
+        return allCustomers;
     }
 }
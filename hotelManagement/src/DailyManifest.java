@@ -0,0 +1,47 @@
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The reservations the front desk needs for a day: the guests who
+ * check in, the guests who check out and the guests who stay the night.
+ */
+public class DailyManifest {
+
+    private final Date date;
+    private final List<Reservation> arrivals;
+    private final List<Reservation> departures;
+    private final List<Reservation> inHouse;
+
+    public DailyManifest(final Date date, final List<Reservation> arrivals, final List<Reservation> departures,
+                         final List<Reservation> inHouse) {
+        this.date = date;
+        this.arrivals = arrivals;
+        this.departures = departures;
+        this.inHouse = inHouse;
+    }
+
+    public Date getDate() {
+        return this.date;
+    }
+
+    public List<Reservation> getArrivals() {
+        return this.arrivals;
+    }
+
+    public List<Reservation> getDepartures() {
+        return this.departures;
+    }
+
+    /**
+     * Gets the reservations which stay over the night after the day.
+     * @return the reservations
+     */
+    public List<Reservation> getInHouse() {
+        return this.inHouse;
+    }
+
+    public String toString() {
+        return "Manifest of " + this.date + ": " + this.arrivals.size() + " arrival(s), "
+                + this.departures.size() + " departure(s), " + this.inHouse.size() + " in house";
+    }
+}
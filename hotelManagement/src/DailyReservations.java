@@ -0,0 +1,257 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Indexes the reservations by day for the front desk: the arrivals and the
+ * departures of every day and the reservations which stay over every night.
+ * The days are grouped into blocks of 32 days, every block keeps the ids
+ * which check in and check out on each of its days. A stay is stored once
+ * by its check-in, the reservations of a night are the arrivals of the 32
+ * days up to the night which check out after it. Only stays which are
+ * longer than a block are also listed in the blocks of their later nights,
+ * once per block and not once per night.
+ * A reservation stays the nights from the day of its check-in to the day
+ * before its check-out. Cancelled reservations stay in the lists until
+ * their blocks are compacted.
+ */
+public class DailyReservations {
+
+    private static final int BLOCK_BITS = 5;
+    private static final int BLOCK_DAYS = 1 << BLOCK_BITS;
+    private static final int DAY_MASK = BLOCK_DAYS - 1;
+
+    private final ReservationStore store;
+    private final Map<Integer, Block> blocks = new ConcurrentHashMap<>();
+    private final Set<Integer> blocksToCompact = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    /**
+     * Creates the index of the days.
+     * @param store with the reservations
+     */
+    public DailyReservations(final ReservationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Adds a reservation of the store to the days of its stay.
+     * @param id of the reservation
+     */
+    public void add(final int id) {
+        final int checkInDay = checkInDayOf(id);
+        final int checkOutDay = checkOutDayOf(id);
+        final Block arrivalBlock = blocks.computeIfAbsent(checkInDay >> BLOCK_BITS, newBlock -> new Block());
+        final Block departureBlock = blocks.computeIfAbsent(checkOutDay >> BLOCK_BITS, newBlock -> new Block());
+
+        synchronized (arrivalBlock) {
+            arrivalBlock.arrivals(checkInDay).add(id);
+        }
+        synchronized (departureBlock) {
+            departureBlock.departures(checkOutDay).add(id);
+        }
+
+        for (int block = firstLongStayBlock(checkInDay); block <= lastBlock(checkOutDay); block++) {
+            final Block longStayBlock = blocks.computeIfAbsent(block, newBlock -> new Block());
+
+            synchronized (longStayBlock) {
+                longStayBlock.longStays.add(id);
+            }
+        }
+    }
+
+    /**
+     * Marks the blocks of a cancelled reservation for the next compaction.
+     * @param id of the cancelled reservation
+     * @return true when the compaction has to be scheduled
+     */
+    public boolean cancel(final int id) {
+        final int checkInDay = checkInDayOf(id);
+        final int checkOutDay = checkOutDayOf(id);
+
+        blocksToCompact.add(checkInDay >> BLOCK_BITS);
+        blocksToCompact.add(checkOutDay >> BLOCK_BITS);
+
+        for (int block = firstLongStayBlock(checkInDay); block <= lastBlock(checkOutDay); block++) {
+            blocksToCompact.add(block);
+        }
+
+        return compactionScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Removes the cancelled reservations from the lists of the marked blocks.
+     */
+    public void compact() {
+        compactionScheduled.set(false);
+
+        for (Iterator<Integer> marked = blocksToCompact.iterator(); marked.hasNext(); ) {
+            final Block block = blocks.get(marked.next());
+
+            marked.remove();
+
+            if (block != null) {
+                synchronized (block) {
+                    block.compact(store);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the reservations which check in on the day.
+     * @param day since 1970
+     * @return ids of the reservations
+     */
+    public int[] getArrivals(final int day) {
+        final Block block = blocks.get(day >> BLOCK_BITS);
+        final IntList ids = new IntList(0);
+
+        if (block != null) {
+            synchronized (block) {
+                block.addIds(block.arrivals, day, ids);
+            }
+        }
+
+        return ids.toArray();
+    }
+
+    /**
+     * Gets the reservations which check out on the day.
+     * @param day since 1970
+     * @return ids of the reservations
+     */
+    public int[] getDepartures(final int day) {
+        final Block block = blocks.get(day >> BLOCK_BITS);
+        final IntList ids = new IntList(0);
+
+        if (block != null) {
+            synchronized (block) {
+                block.addIds(block.departures, day, ids);
+            }
+        }
+
+        return ids.toArray();
+    }
+
+    /**
+     * Gets the reservations which stay over the night from the day to the next.
+     * @param night day since 1970
+     * @return ids of the reservations
+     */
+    public int[] getInHouse(final int night) {
+        final IntList ids = new IntList();
+        final int firstArrival = night - BLOCK_DAYS + 1;
+
+        for (int block = firstArrival >> BLOCK_BITS; block <= night >> BLOCK_BITS; block++) {
+            final Block arrivalBlock = blocks.get(block);
+
+            if (arrivalBlock == null) {
+                continue;
+            }
+
+            synchronized (arrivalBlock) {
+                for (int day = Math.max(firstArrival, block << BLOCK_BITS);
+                     day <= Math.min(night, (block << BLOCK_BITS) + DAY_MASK); day++) {
+                    final IntList arrivals = arrivalBlock.arrivals[day & DAY_MASK];
+
+                    for (int index = 0; arrivals != null && index < arrivals.size(); index++) {
+                        if (checkOutDayOf(arrivals.get(index)) > night) {
+                            ids.add(arrivals.get(index));
+                        }
+                    }
+                }
+            }
+        }
+
+        final Block block = blocks.get(night >> BLOCK_BITS);
+
+        if (block != null) {
+            synchronized (block) {
+                // the stays which arrived within the last 32 days were found above
+                for (int index = 0; index < block.longStays.size(); index++) {
+                    final int id = block.longStays.get(index);
+
+                    if (checkInDayOf(id) < firstArrival && checkOutDayOf(id) > night) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+
+        return ids.toArray();
+    }
+
+    /**
+     * Gets the first block in which a stay from the day is in house for more than a block,
+     * a stay of at most 32 nights is not listed in any block.
+     */
+    private static int firstLongStayBlock(final int checkInDay) {
+        return (checkInDay + BLOCK_DAYS) >> BLOCK_BITS;
+    }
+
+    /**
+     * Gets the block of the last night before the check-out.
+     */
+    private static int lastBlock(final int checkOutDay) {
+        return (checkOutDay - 1) >> BLOCK_BITS;
+    }
+
+    private int checkInDayOf(final int id) {
+        return store.hasWholeDays(id) ? store.getCheckInDay(id) : ReservationDays.dayOf(store.getCheckIn(id));
+    }
+
+    private int checkOutDayOf(final int id) {
+        return store.hasWholeDays(id) ? store.getCheckOutDay(id) : ReservationDays.dayOf(store.getCheckOut(id));
+    }
+
+    /**
+     * Arrivals and departures of 32 days and the long stays which are in house in them.
+     * It is not thread-safe, callers synchronize on the block.
+     */
+    private static class Block {
+
+        private final IntList[] arrivals = new IntList[BLOCK_DAYS];
+        private final IntList[] departures = new IntList[BLOCK_DAYS];
+        private final IntList longStays = new IntList(0);
+
+        private IntList arrivals(final int day) {
+            return listOf(arrivals, day);
+        }
+
+        private IntList departures(final int day) {
+            return listOf(departures, day);
+        }
+
+        private static IntList listOf(final IntList[] idsByDay, final int day) {
+            if (idsByDay[day & DAY_MASK] == null) {
+                idsByDay[day & DAY_MASK] = new IntList(1);
+            }
+
+            return idsByDay[day & DAY_MASK];
+        }
+
+        private void addIds(final IntList[] idsByDay, final int day, final IntList ids) {
+            final IntList idsOfDay = idsByDay[day & DAY_MASK];
+
+            for (int index = 0; idsOfDay != null && index < idsOfDay.size(); index++) {
+                ids.add(idsOfDay.get(index));
+            }
+        }
+
+        private void compact(final ReservationStore store) {
+            for (int day = 0; day < BLOCK_DAYS; day++) {
+                if (arrivals[day] != null) {
+                    arrivals[day].removeIf(store::isCancelled);
+                }
+                if (departures[day] != null) {
+                    departures[day].removeIf(store::isCancelled);
+                }
+            }
+
+            longStays.removeIf(store::isCancelled);
+        }
+    }
+}
@@ -0,0 +1,491 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded HTTP server with a JSON API in front of the hotel and admin resources.
+ * Every request is handled on its own virtual thread when the runtime supports
+ * them (Java 21+), otherwise on a thread of a cached pool.
+ * <pre>
+ * GET  /api/rooms?checkIn=02/01/2022&amp;checkOut=02/05/2022
+ * GET  /api/rooms?checkIn=..&amp;checkOut=..&amp;roomType=SINGLE&amp;minPrice=50&amp;maxPrice=120&amp;limit=10
+ * GET  /api/rooms/alternatives?checkIn=02/01/2022&amp;checkOut=02/05/2022
+ * POST /api/customers                      {"email", "firstName", "lastName"}
+ * GET  /api/customers/{email}/reservations
+ * POST /api/reservations                   {"email", "roomNumber", "checkIn", "checkOut"}
+ * POST /api/reservations/group             {"email", "roomNumbers": "101,102", "checkIn", "checkOut"}
+ * POST /api/reservations/cancel            {"email", "roomNumber", "checkIn", "checkOut"}
+ * POST /api/reservations/modify            {"email", "roomNumber", "checkIn", "checkOut",
+ *                                           "newRoomNumber", "newCheckIn", "newCheckOut"}
+ * GET  /api/admin/rooms?cursor=0&amp;limit=100&amp;roomType=SINGLE
+ * POST /api/admin/rooms                    {"roomNumber", "price", "roomType"}
+ * GET  /api/admin/customers?cursor=0&amp;limit=100
+ * GET  /api/admin/reservations?cursor=0&amp;limit=100&amp;from=..&amp;to=..&amp;roomType=..&amp;email=..
+ * GET  /api/admin/occupancy?from=01/01/2022&amp;to=01/01/2023&amp;period=MONTH
+ * GET  /api/admin/replication
+ * </pre>
+ * A leader returns the replication position after every change in the header
+ * X-Replication-Position. A follower only answers GET requests, a request with
+ * this header waits until the follower has applied the position, so a client
+ * reads its own changes. A follower which stopped replicating answers 503 to
+ * everything but the replication status.
+ */
+public class HotelApiServer {
+
+    private static final int BACKLOG = 4096;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String POSITION_HEADER = "X-Replication-Position";
+    private static final long READ_YOUR_WRITES_MILLIS = Long.getLong("hotel.replication.readYourWritesMillis", 1000);
+
+    private final HotelResource hotelResource = HotelResource.getSingleton();
+    private final AdminResource adminResource = AdminResource.getSingleton();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ReplicationLeader leader;
+    private final ReplicationFollower follower;
+
+    private HotelApiServer(final HttpServer server, final ExecutorService executor,
+                           final ReplicationLeader leader, final ReplicationFollower follower) {
+        this.server = server;
+        this.executor = executor;
+        this.leader = leader;
+        this.follower = follower;
+    }
+
+    /**
+     * Starts the server on the address.
+     * @param address e.g. 127.0.0.1:8080, port 0 picks a free port
+     * @return the running server
+     * @throws IOException when the address can't be bound
+     */
+    public static HotelApiServer start(final InetSocketAddress address) throws IOException {
+        return start(address, null, null);
+    }
+
+    /**
+     * Starts the server on the address for a leader or a follower.
+     * @param address e.g. 127.0.0.1:8080, port 0 picks a free port
+     * @param leader which streams the changes to followers or null
+     * @param follower which applies the changes of a leader or null
+     * @return the running server
+     * @throws IOException when the address can't be bound
+     */
+    public static HotelApiServer start(final InetSocketAddress address, final ReplicationLeader leader,
+                                       final ReplicationFollower follower) throws IOException {
+        final HttpServer server = HttpServer.create(address, BACKLOG);
+        final ExecutorService executor = newRequestExecutor();
+        final HotelApiServer apiServer = new HotelApiServer(server, executor, leader, follower);
+
+        server.setExecutor(executor);
+        server.createContext("/api/", apiServer::handle);
+        server.start();
+
+        return apiServer;
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops the server after the running requests are answered.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String position = exchange.getRequestHeaders().getFirst(POSITION_HEADER);
+        Response response;
+
+        try (InputStream body = exchange.getRequestBody()) {
+            if (follower != null && !"GET".equals(method)) {
+                response = error(403, "A follower doesn't accept changes, send them to the leader");
+            } else if (follower != null && follower.isStopped()
+                    && !exchange.getRequestURI().getRawPath().endsWith("/admin/replication")) {
+                response = error(503, "The follower stopped replicating, read from the leader");
+            } else if (follower != null && position != null
+                    && !follower.awaitPosition(Long.parseLong(position), READ_YOUR_WRITES_MILLIS)) {
+                response = error(503, "The follower has not reached position " + position + " yet");
+            } else {
+                response = route(method, exchange.getRequestURI().getRawPath(),
+                        parseQuery(exchange.getRequestURI().getRawQuery()),
+                        new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            response = error(400, ex.getMessage());
+        } catch (RuntimeException ex) {
+            // the details stay in the log of the server, the client only learns that it failed
+            System.err.println("Request " + method + " " + exchange.getRequestURI() + " failed: " + ex);
+            response = error(500, "Internal server error");
+        }
+
+        final byte[] json = response.body.getBytes(StandardCharsets.UTF_8);
+
+        if (leader != null && !"GET".equals(method)) {
+            exchange.getResponseHeaders().set(POSITION_HEADER, Long.toString(leader.getPosition()));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, json.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(json);
+        }
+    }
+
+    private Response route(final String method, final String path, final Map<String, String> query,
+                           final String body) {
+        final String[] parts = path.substring("/api/".length()).split("/");
+        final String route = method + " " + String.join("/", parts);
+
+        if (parts.length == 3 && "customers".equals(parts[0]) && "reservations".equals(parts[2])
+                && "GET".equals(method)) {
+            return getCustomersReservations(URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+        }
+
+        return switch (route) {
+            case "GET rooms" -> findRooms(query);
+            case "GET rooms/alternatives" -> findAlternativeRooms(query);
+            case "POST customers" -> createCustomer(Json.parseObject(body));
+            case "POST reservations" -> bookRoom(Json.parseObject(body));
+            case "POST reservations/group" -> bookRooms(Json.parseObject(body));
+            case "POST reservations/cancel" -> cancelReservation(Json.parseObject(body));
+            case "POST reservations/modify" -> modifyReservation(Json.parseObject(body));
+            case "GET admin/rooms" -> getRooms(query);
+            case "POST admin/rooms" -> addRoom(Json.parseObject(body));
+            case "GET admin/customers" -> ok(HotelJson.toJson(adminResource.getCustomers(cursorOf(query),
+                    pageSizeOf(query)), HotelJson::toJson));
+            case "GET admin/reservations" -> getReservations(query);
+            case "GET admin/occupancy" -> getOccupancyStatistics(query);
+            case "GET admin/replication" -> getReplication();
+            default -> error(404, "Unknown resource " + method + " " + path);
+        };
+    }
+
+    /**
+     * Finds all free rooms, or the cheapest ones first when
+     * a room type, price or limit is given.
+     */
+    private Response findRooms(final Map<String, String> query) {
+        final Date checkIn = HotelJson.parseDate(required(query, "checkIn"));
+        final Date checkOut = HotelJson.parseDate(required(query, "checkOut"));
+
+        if (!query.containsKey("roomType") && !query.containsKey("minPrice") && !query.containsKey("maxPrice")
+                && !query.containsKey("limit")) {
+            return ok(HotelJson.toJsonArray(hotelResource.findARoom(checkIn, checkOut), HotelJson::toJson));
+        }
+
+        return ok(HotelJson.toJsonArray(hotelResource.findCheapestRooms(checkIn, checkOut,
+                query.containsKey("roomType") ? RoomType.parse(query.get("roomType")) : null,
+                query.containsKey("minPrice") ? Double.valueOf(query.get("minPrice")) : null,
+                query.containsKey("maxPrice") ? Double.valueOf(query.get("maxPrice")) : null,
+                query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : Integer.MAX_VALUE), HotelJson::toJson));
+    }
+
+    private Response findAlternativeRooms(final Map<String, String> query) {
+        final Date checkIn = HotelJson.parseDate(required(query, "checkIn"));
+        final Date checkOut = HotelJson.parseDate(required(query, "checkOut"));
+
+        return ok("{\"checkIn\":" + Json.quote(HotelJson.formatDate(hotelResource.addDefaultPlusDays(checkIn)))
+                + ",\"checkOut\":" + Json.quote(HotelJson.formatDate(hotelResource.addDefaultPlusDays(checkOut)))
+                + ",\"rooms\":" + HotelJson.toJsonArray(hotelResource.findAlternativeRooms(checkIn, checkOut), HotelJson::toJson)
+                + "}");
+    }
+
+    private Response createCustomer(final Map<String, String> customer) {
+        final String email = required(customer, "email");
+
+        hotelResource.createACustomer(email, required(customer, "firstName"), required(customer, "lastName"));
+
+        return new Response(201, HotelJson.toJson(hotelResource.getCustomer(email)));
+    }
+
+    private Response getCustomersReservations(final String email) {
+        if (hotelResource.getCustomer(email) == null) {
+            return error(404, "Unknown customer " + email);
+        }
+
+        return ok(HotelJson.toJsonArray(hotelResource.getCustomersReservations(email), HotelJson::toJson));
+    }
+
+    private Response bookRoom(final Map<String, String> booking) {
+        final String email = required(booking, "email");
+        final Room room = hotelResource.getRoom(required(booking, "roomNumber"));
+        final Date checkIn = HotelJson.parseDate(required(booking, "checkIn"));
+        final Date checkOut = HotelJson.parseDate(required(booking, "checkOut"));
+
+        if (hotelResource.getCustomer(email) == null) {
+            return error(404, "Unknown customer " + email);
+        }
+        if (room == null) {
+            return error(404, "Unknown room " + booking.get("roomNumber"));
+        }
+        if (!checkIn.before(checkOut)) {
+            return error(400, "Check-out is not after check-in");
+        }
+
+        final Reservation reservation = hotelResource.bookARoomIfAvailable(email, room, checkIn, checkOut);
+
+        if (reservation == null) {
+            return error(409, "Room " + room.getRoomNumber() + " is already booked");
+        }
+
+        return new Response(201, HotelJson.toJson(reservation));
+    }
+
+    /**
+     * Cancels the reservation with the room and dates of the customer.
+     */
+    private Response cancelReservation(final Map<String, String> booking) {
+        final Reservation reservation = toReservation(booking);
+
+        if (reservation == null || !hotelResource.cancelReservation(reservation)) {
+            return error(404, "Unknown reservation");
+        }
+
+        return ok(HotelJson.toJson(reservation));
+    }
+
+    /**
+     * Moves the reservation with the room and dates of the customer to the new
+     * room or dates, a missing new value keeps the previous one.
+     */
+    private Response modifyReservation(final Map<String, String> booking) {
+        final Reservation reservation = toReservation(booking);
+
+        if (reservation == null) {
+            return error(404, "Unknown reservation");
+        }
+
+        final String newRoomNumber = booking.getOrDefault("newRoomNumber", reservation.getRoom().getRoomNumber());
+        final Room room = hotelResource.getRoom(newRoomNumber);
+        final Date checkIn = booking.containsKey("newCheckIn")
+                ? HotelJson.parseDate(booking.get("newCheckIn")) : reservation.getCheckInDate();
+        final Date checkOut = booking.containsKey("newCheckOut")
+                ? HotelJson.parseDate(booking.get("newCheckOut")) : reservation.getCheckOutDate();
+
+        if (room == null) {
+            return error(404, "Unknown room " + newRoomNumber);
+        }
+        if (!checkIn.before(checkOut)) {
+            return error(400, "Check-out is not after check-in");
+        }
+
+        final Reservation modifiedReservation;
+
+        try {
+            modifiedReservation = hotelResource.modifyReservation(reservation, room, checkIn, checkOut);
+        } catch (IllegalArgumentException ex) {
+            return error(404, ex.getMessage());
+        }
+
+        if (modifiedReservation == null) {
+            return error(409, "Room " + room.getRoomNumber() + " is already booked");
+        }
+
+        return ok(HotelJson.toJson(modifiedReservation));
+    }
+
+    /**
+     * Gets the reservation which the customer, room and dates of the request identify.
+     * @return the reservation or null when the customer or room is unknown
+     */
+    private Reservation toReservation(final Map<String, String> booking) {
+        final Customer customer = hotelResource.getCustomer(required(booking, "email"));
+        final Room room = hotelResource.getRoom(required(booking, "roomNumber"));
+        final Date checkIn = HotelJson.parseDate(required(booking, "checkIn"));
+        final Date checkOut = HotelJson.parseDate(required(booking, "checkOut"));
+
+        return customer != null && room != null ? new Reservation(customer, room, checkIn, checkOut) : null;
+    }
+
+    /**
+     * Books all rooms of the comma separated room numbers or none of them.
+     */
+    private Response bookRooms(final Map<String, String> booking) {
+        final String email = required(booking, "email");
+        final Date checkIn = HotelJson.parseDate(required(booking, "checkIn"));
+        final Date checkOut = HotelJson.parseDate(required(booking, "checkOut"));
+        final List<String> roomNumbers = Arrays.stream(required(booking, "roomNumbers").split(","))
+                .map(String::trim).filter(roomNumber -> !roomNumber.isEmpty()).distinct()
+                .collect(Collectors.toList());
+        final List<Room> rooms = roomNumbers.stream().map(hotelResource::getRoom).collect(Collectors.toList());
+
+        if (hotelResource.getCustomer(email) == null) {
+            return error(404, "Unknown customer " + email);
+        }
+        if (rooms.isEmpty()) {
+            return error(400, "No room numbers");
+        }
+        if (rooms.contains(null)) {
+            return error(404, "Unknown room " + roomNumbers.get(rooms.indexOf(null)));
+        }
+        if (!checkIn.before(checkOut)) {
+            return error(400, "Check-out is not after check-in");
+        }
+
+        final List<Reservation> reservations = hotelResource.bookRooms(email, rooms, checkIn, checkOut);
+
+        if (reservations == null) {
+            return error(409, "One of the rooms " + String.join(",", roomNumbers) + " is already booked");
+        }
+
+        return new Response(201, HotelJson.toJsonArray(reservations, HotelJson::toJson));
+    }
+
+    private Response getOccupancyStatistics(final Map<String, String> query) {
+        final ReportPeriod period = query.containsKey("period") ? ReportPeriod.valueOf(query.get("period"))
+                : ReportPeriod.MONTH;
+
+        return ok(HotelJson.toJsonArray(adminResource.getOccupancyStatistics(HotelJson.parseDate(required(query, "from")),
+                HotelJson.parseDate(required(query, "to")), period), HotelJson::toJson));
+    }
+
+    /**
+     * Gets the role of this server and the position or lag of its replication.
+     */
+    private Response getReplication() {
+        if (leader != null) {
+            return ok("{\"role\":\"leader\",\"position\":" + leader.getPosition()
+                    + ",\"followers\":" + leader.getFollowerCount() + "}");
+        }
+        if (follower != null) {
+            return ok("{\"role\":\"follower\",\"connected\":" + follower.isConnected()
+                    + ",\"stopped\":" + follower.isStopped()
+                    + ",\"appliedPosition\":" + follower.getAppliedPosition()
+                    + ",\"leaderPosition\":" + follower.getLeaderPosition()
+                    + ",\"lagBytes\":" + follower.getLagBytes() + ",\"lagMillis\":" + follower.getLagMillis() + "}");
+        }
+
+        return ok("{\"role\":\"standalone\"}");
+    }
+
+    /**
+     * Gets a page of the rooms, optionally of one type.
+     */
+    private Response getRooms(final Map<String, String> query) {
+        final RoomType roomType = query.containsKey("roomType") ? RoomType.parse(query.get("roomType")) : null;
+
+        return ok(HotelJson.toJson(adminResource.getRooms(roomType, cursorOf(query), pageSizeOf(query)),
+                HotelJson::toJson));
+    }
+
+    /**
+     * Gets a page of the reservations which match the dates, room type and customer of the query.
+     */
+    private Response getReservations(final Map<String, String> query) {
+        final ReservationFilter filter = new ReservationFilter(
+                query.containsKey("from") ? HotelJson.parseDate(query.get("from")) : null,
+                query.containsKey("to") ? HotelJson.parseDate(query.get("to")) : null,
+                query.containsKey("roomType") ? RoomType.parse(query.get("roomType")) : null,
+                query.get("email"));
+
+        return ok(HotelJson.toJson(adminResource.getReservations(filter, cursorOf(query), pageSizeOf(query)),
+                HotelJson::toJson));
+    }
+
+    private static int cursorOf(final Map<String, String> query) {
+        final int cursor = query.containsKey("cursor") ? Integer.parseInt(query.get("cursor")) : 0;
+
+        if (cursor < 0) {
+            throw new IllegalArgumentException("The cursor is negative");
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Gets the limit of the query, 100 when there is none and at most 1000.
+     */
+    private static int pageSizeOf(final Map<String, String> query) {
+        final int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_PAGE_SIZE;
+
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit is not positive");
+        }
+
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private Response addRoom(final Map<String, String> room) {
+        final Room newRoom = new Room(required(room, "roomNumber"), Double.parseDouble(required(room, "price")),
+                RoomType.parse(required(room, "roomType")));
+
+        adminResource.addRoom(Collections.singletonList(newRoom));
+
+        return new Response(201, HotelJson.toJson(newRoom));
+    }
+
+    private static String required(final Map<String, String> values, final String name) {
+        final String value = values.get(name);
+
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(final String rawQuery) {
+        final Map<String, String> query = new HashMap<>();
+
+        if (rawQuery == null) {
+            return query;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+            final String[] nameAndValue = parameter.split("=", 2);
+
+            query.put(URLDecoder.decode(nameAndValue[0], StandardCharsets.UTF_8),
+                    nameAndValue.length > 1 ? URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8) : "");
+        }
+
+        return query;
+    }
+
+    private static Response ok(final String body) {
+        return new Response(200, body);
+    }
+
+    private static Response error(final int status, final String message) {
+        return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        private Response(final int status, final String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
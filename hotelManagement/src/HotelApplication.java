@@ -1,6 +1,103 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class HotelApplication {
 
-    public static void main(String[] args) {
-        MainMenu.mainMenu();
+    public static void main(String[] args) throws IOException {
+        final Path dataDirectory = Path.of(System.getProperty("hotel.data", "data"));
+        final boolean batch = args.length >= 2 && args.length <= 3 && "--batch".equals(args[0]);
+        // a script is replayed as a whole, so its journal is only forced in batches and when it ends
+        final JournalDurability durability = JournalDurability.valueOf(System.getProperty("hotel.durability",
+                (batch ? JournalDurability.BATCHED : JournalDurability.SYNC).name()));
+
+        final long snapshotIntervalMinutes = Long.getLong("hotel.snapshotMinutes", 10);
+        final String host = System.getProperty("hotel.http.host", "127.0.0.1");
+        final String leaderAddress = System.getProperty("hotel.replication.leader");
+        final boolean http = args.length == 2 && "--http".equals(args[0]);
+
+        if (leaderAddress != null) {
+            if (!http) {
+                throw new IllegalArgumentException("A follower only serves the HTTP API, start it with --http <port>");
+            }
+
+            // a follower keeps no data of its own, it gets everything from the leader
+            final ReplicationFollower follower = ReplicationFollower.start(parseAddress(leaderAddress));
+            final HotelApiServer server = HotelApiServer.start(new InetSocketAddress(host, Integer.parseInt(args[1])),
+                    null, follower);
+
+            System.out.println("Hotel API of the follower of " + leaderAddress + " listening on "
+                    + server.getAddress());
+            return;
+        }
+
+        final HotelPersistence persistence = HotelPersistence.start(dataDirectory, durability, snapshotIntervalMinutes);
+        final int replicationPort = Integer.getInteger("hotel.replication.port", -1);
+        final ReplicationLeader leader = replicationPort >= 0
+                ? ReplicationLeader.start(new InetSocketAddress(host, replicationPort), persistence.getJournal(),
+                        Integer.getInteger("hotel.replication.logBytes", 64 << 20))
+                : null;
+
+        if (leader != null) {
+            System.out.println("Replication listening on " + leader.getAddress());
+        }
+
+        if (http) {
+            final HotelApiServer server = HotelApiServer.start(new InetSocketAddress(host, Integer.parseInt(args[1])),
+                    leader, null);
+
+            System.out.println("Hotel API listening on " + server.getAddress());
+        } else if (batch) {
+            System.exit(runBatch(args[1], args.length == 3 ? args[2] : null));
+        } else {
+            MainMenu.mainMenu();
+        }
+    }
+
+    /**
+     * Runs the commands of a script and writes their results as JSON lines.
+     * @param script file of the commands, - for the standard input
+     * @param output file of the results, null for the standard output
+     * @return the exit status, 1 when a command failed
+     * @throws IOException when the script can't be read or the results can't be written
+     */
+    private static int runBatch(final String script, final String output) throws IOException {
+        final HotelBatch hotelBatch = new HotelBatch();
+        final long start = System.nanoTime();
+
+        try (BufferedReader reader = "-".equals(script)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8);
+             BufferedWriter writer = output != null
+                     ? Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            hotelBatch.run(reader, writer);
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("%d commands, %d errors in %.2f s (%.0f commands/s)%n", hotelBatch.getCommands(),
+                hotelBatch.getErrors(), seconds, hotelBatch.getCommands() / seconds);
+
+        return hotelBatch.getErrors() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Parses an address like 127.0.0.1:9090.
+     */
+    private static InetSocketAddress parseAddress(final String address) {
+        final int colon = address.lastIndexOf(':');
+
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected host:port instead of " + address);
+        }
+
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
     }
 }
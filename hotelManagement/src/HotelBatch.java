@@ -0,0 +1,309 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a script of commands against the hotel and admin resources, one
+ * comma separated command per line like the lines of the importer:
+ * <pre>
+ * room,101,120.0,1
+ * customer,jane@doe.com,Jane,Doe
+ * find,02/01/2022,02/05/2022
+ * cheapest,02/01/2022,02/05/2022,1,150.0,10
+ * book,jane@doe.com,101,02/01/2022,02/05/2022
+ * bookGroup,jane@doe.com,101 102,02/01/2022,02/05/2022
+ * modify,jane@doe.com,101,02/01/2022,02/05/2022,102,02/02/2022,02/06/2022
+ * cancel,jane@doe.com,102,02/02/2022,02/06/2022
+ * reservations,jane@doe.com
+ * searchCustomers,jane do,20
+ * manifest,02/01/2022
+ * occupancy,01/01/2022,01/01/2023,MONTH
+ * </pre>
+ * Every command writes one JSON line with its line number, its status (ok,
+ * conflict when a room is booked, notFound or error) and its result or error.
+ * The script is read and the results are written through a single buffered
+ * reader and writer, empty lines and lines starting with # are skipped.
+ */
+public class HotelBatch {
+
+    private final HotelResource hotelResource = HotelResource.getSingleton();
+    private final AdminResource adminResource = AdminResource.getSingleton();
+    private long commands;
+    private long errors;
+
+    /**
+     * Runs all commands of the reader.
+     * @param reader with one command per line
+     * @param writer gets one JSON line per command, it is flushed at the end
+     * @throws IOException when the script can't be read or the results can't be written
+     */
+    public void run(final BufferedReader reader, final BufferedWriter writer) throws IOException {
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            final String trimmedLine = line.trim();
+
+            lineNumber++;
+
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+                continue;
+            }
+
+            commands++;
+            writer.write("{\"line\":");
+            writer.write(Long.toString(lineNumber));
+            writer.write(',');
+            writer.write(execute(trimmedLine.split(",", -1)));
+            writer.write('}');
+            writer.newLine();
+        }
+
+        writer.flush();
+    }
+
+    public long getCommands() {
+        return this.commands;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Executes a single command.
+     * @return the status and the result or the error as JSON members
+     */
+    private String execute(final String[] fields) {
+        for (int index = 0; index < fields.length; index++) {
+            fields[index] = fields[index].trim();
+        }
+
+        try {
+            return switch (fields[0]) {
+                case "room" -> addRoom(fields);
+                case "customer" -> createCustomer(fields);
+                case "find" -> findRooms(fields);
+                case "cheapest" -> findCheapestRooms(fields);
+                case "book" -> bookRoom(fields);
+                case "bookGroup" -> bookRooms(fields);
+                case "modify" -> modifyReservation(fields);
+                case "cancel" -> cancelReservation(fields);
+                case "reservations" -> getCustomersReservations(fields);
+                case "searchCustomers" -> searchCustomers(fields);
+                case "manifest" -> getManifest(fields);
+                case "occupancy" -> getOccupancyStatistics(fields);
+                default -> error("Unknown command " + fields[0]);
+            };
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return error(ex.getMessage());
+        } catch (RuntimeException ex) {
+            // a broken line must not stop the rest of the script
+            return error("Failed: " + ex);
+        }
+    }
+
+    private String addRoom(final String[] fields) {
+        requireFields(fields, 4);
+
+        final Room room = new Room(fields[1], Double.parseDouble(fields[2]), RoomType.parse(fields[3]));
+
+        adminResource.addRoom(List.of(room));
+        return ok(HotelJson.toJson(room));
+    }
+
+    private String createCustomer(final String[] fields) {
+        requireFields(fields, 4);
+        hotelResource.createACustomer(fields[1], fields[2], fields[3]);
+
+        return ok(HotelJson.toJson(hotelResource.getCustomer(fields[1])));
+    }
+
+    private String findRooms(final String[] fields) {
+        requireFields(fields, 3);
+
+        return ok(HotelJson.toJsonArray(hotelResource.findARoom(HotelJson.parseDate(fields[1]),
+                HotelJson.parseDate(fields[2])), HotelJson::toJson));
+    }
+
+    /**
+     * cheapest,checkIn,checkOut[,roomType[,maxPrice[,limit]]], empty fields match every room.
+     */
+    private String findCheapestRooms(final String[] fields) {
+        if (fields.length < 3 || fields.length > 6) {
+            throw new IllegalArgumentException("Expected 3 to 6 fields for cheapest");
+        }
+
+        final RoomType roomType = fields.length > 3 && !fields[3].isEmpty() ? RoomType.parse(fields[3]) : null;
+        final Double maxPrice = fields.length > 4 && !fields[4].isEmpty() ? Double.valueOf(fields[4]) : null;
+        final int limit = fields.length > 5 && !fields[5].isEmpty() ? Integer.parseInt(fields[5]) : Integer.MAX_VALUE;
+
+        return ok(HotelJson.toJsonArray(hotelResource.findCheapestRooms(HotelJson.parseDate(fields[1]),
+                HotelJson.parseDate(fields[2]), roomType, null, maxPrice, limit), HotelJson::toJson));
+    }
+
+    private String bookRoom(final String[] fields) {
+        requireFields(fields, 5);
+
+        final Room room = hotelResource.getRoom(fields[2]);
+        final Date checkInDate = HotelJson.parseDate(fields[3]);
+        final Date checkOutDate = HotelJson.parseDate(fields[4]);
+
+        if (hotelResource.getCustomer(fields[1]) == null) {
+            return notFound("Unknown customer " + fields[1]);
+        }
+        if (room == null) {
+            return notFound("Unknown room " + fields[2]);
+        }
+        requireStay(checkInDate, checkOutDate);
+
+        final Reservation reservation = hotelResource.bookARoomIfAvailable(fields[1], room, checkInDate, checkOutDate);
+
+        return reservation != null ? ok(HotelJson.toJson(reservation)) : conflict("Room " + fields[2] + " is booked");
+    }
+
+    /**
+     * bookGroup,email,room numbers separated by spaces,checkIn,checkOut
+     */
+    private String bookRooms(final String[] fields) {
+        requireFields(fields, 5);
+
+        final List<String> roomNumbers = Arrays.stream(fields[2].split("\\s+"))
+                .filter(roomNumber -> !roomNumber.isEmpty()).distinct().collect(Collectors.toList());
+        final List<Room> rooms = roomNumbers.stream().map(hotelResource::getRoom).collect(Collectors.toList());
+        final Date checkInDate = HotelJson.parseDate(fields[3]);
+        final Date checkOutDate = HotelJson.parseDate(fields[4]);
+
+        if (hotelResource.getCustomer(fields[1]) == null) {
+            return notFound("Unknown customer " + fields[1]);
+        }
+        if (rooms.isEmpty() || rooms.contains(null)) {
+            return notFound("Unknown room in " + fields[2]);
+        }
+        requireStay(checkInDate, checkOutDate);
+
+        final List<Reservation> reservations = hotelResource.bookRooms(fields[1], rooms, checkInDate, checkOutDate);
+
+        return reservations != null ? ok(HotelJson.toJsonArray(reservations, HotelJson::toJson))
+                : conflict("One of the rooms " + fields[2] + " is booked");
+    }
+
+    private String modifyReservation(final String[] fields) {
+        requireFields(fields, 8);
+
+        final Reservation reservation = toReservation(fields);
+        final Room room = hotelResource.getRoom(fields[5]);
+        final Date checkInDate = HotelJson.parseDate(fields[6]);
+        final Date checkOutDate = HotelJson.parseDate(fields[7]);
+
+        if (reservation == null) {
+            return notFound("Unknown reservation");
+        }
+        if (room == null) {
+            return notFound("Unknown room " + fields[5]);
+        }
+        requireStay(checkInDate, checkOutDate);
+
+        final Reservation modifiedReservation;
+
+        try {
+            modifiedReservation = hotelResource.modifyReservation(reservation, room, checkInDate, checkOutDate);
+        } catch (IllegalArgumentException ex) {
+            return notFound(ex.getMessage());
+        }
+
+        return modifiedReservation != null ? ok(HotelJson.toJson(modifiedReservation))
+                : conflict("Room " + fields[5] + " is booked");
+    }
+
+    private String cancelReservation(final String[] fields) {
+        requireFields(fields, 5);
+
+        final Reservation reservation = toReservation(fields);
+
+        if (reservation == null || !hotelResource.cancelReservation(reservation)) {
+            return notFound("Unknown reservation");
+        }
+
+        return ok(HotelJson.toJson(reservation));
+    }
+
+    /**
+     * Gets the reservation which the email, room number and dates of the fields identify.
+     * @return the reservation or null when the customer or the room is unknown
+     */
+    private Reservation toReservation(final String[] fields) {
+        final Customer customer = hotelResource.getCustomer(fields[1]);
+        final Room room = hotelResource.getRoom(fields[2]);
+        final Date checkInDate = HotelJson.parseDate(fields[3]);
+        final Date checkOutDate = HotelJson.parseDate(fields[4]);
+
+        return customer != null && room != null ? new Reservation(customer, room, checkInDate, checkOutDate) : null;
+    }
+
+    private String getCustomersReservations(final String[] fields) {
+        requireFields(fields, 2);
+
+        if (hotelResource.getCustomer(fields[1]) == null) {
+            return notFound("Unknown customer " + fields[1]);
+        }
+
+        return ok(HotelJson.toJsonArray(hotelResource.getCustomersReservations(fields[1]), HotelJson::toJson));
+    }
+
+    private String searchCustomers(final String[] fields) {
+        requireFields(fields, 3);
+
+        final CustomerSearchResult result = adminResource.searchCustomers(fields[1], Integer.parseInt(fields[2]));
+
+        return ok("{\"customers\":" + HotelJson.toJsonArray(result.getCustomers(), HotelJson::toJson)
+                + ",\"truncated\":" + result.isTruncated() + "}");
+    }
+
+    private String getManifest(final String[] fields) {
+        requireFields(fields, 2);
+
+        return ok(HotelJson.toJson(adminResource.getManifest(HotelJson.parseDate(fields[1]))));
+    }
+
+    private String getOccupancyStatistics(final String[] fields) {
+        requireFields(fields, 4);
+
+        return ok(HotelJson.toJsonArray(adminResource.getOccupancyStatistics(HotelJson.parseDate(fields[1]),
+                HotelJson.parseDate(fields[2]), ReportPeriod.valueOf(fields[3])), HotelJson::toJson));
+    }
+
+    private static void requireFields(final String[] fields, final int count) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " fields for " + fields[0]);
+        }
+    }
+
+    private static void requireStay(final Date checkInDate, final Date checkOutDate) {
+        if (!checkInDate.before(checkOutDate)) {
+            throw new IllegalArgumentException("Check-out is not after check-in");
+        }
+    }
+
+    private static String ok(final String result) {
+        return "\"status\":\"ok\",\"result\":" + result;
+    }
+
+    private static String conflict(final String message) {
+        return "\"status\":\"conflict\",\"error\":" + Json.quote(message);
+    }
+
+    private static String notFound(final String message) {
+        return "\"status\":\"notFound\",\"error\":" + Json.quote(message);
+    }
+
+    private String error(final String message) {
+        errors++;
+        return "\"status\":\"error\",\"error\":" + Json.quote(message);
+    }
+}
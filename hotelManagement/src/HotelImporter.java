@@ -0,0 +1,220 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Imports rooms, customers and historical reservations from comma separated lines:
+ * <pre>
+ * room,101,120.0,1
+ * customer,jane@doe.com,Jane,Doe
+ * reservation,jane@doe.com,101,02/01/2022,02/05/2022
+ * </pre>
+ * The lines are read in chunks, every chunk is parsed and validated in parallel
+ * and then added to the services at once. Empty lines and lines starting with #
+ * are skipped. A reservation whose room is already booked for one of its nights,
+ * also by an earlier line of the import, is rejected like a booking.
+ */
+public class HotelImporter {
+
+    private static final int CHUNK_LINES = 10_000;
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private final CustomerService customerService = CustomerService.getSingleton();
+    private final ReservationService reservationService = ReservationService.getSingleton();
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Imports all lines of the reader.
+     * @param reader with one record per line
+     * @param progress gets the report after every chunk
+     * @return report of the whole import
+     * @throws IOException when the lines can't be read
+     */
+    public ImportReport importLines(final BufferedReader reader, final Consumer<ImportReport> progress)
+            throws IOException {
+        final ImportReport report = new ImportReport();
+        final List<String> chunk = new ArrayList<>(CHUNK_LINES);
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            chunk.add(line);
+
+            if (chunk.size() == CHUNK_LINES) {
+                importChunk(chunk, report);
+                progress.accept(report);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+            progress.accept(report);
+        }
+
+        return report;
+    }
+
+    /**
+     * Parses the lines of the chunk in parallel and adds the valid records.
+     * Rooms and customers of the chunk are added before its reservations.
+     */
+    private void importChunk(final List<String> chunk, final ImportReport report) {
+        final long firstLineNumber = report.getLines() + 1;
+        final ImportLine[] lines = IntStream.range(0, chunk.size()).parallel()
+                .mapToObj(index -> parse(chunk.get(index)))
+                .toArray(ImportLine[]::new);
+        final List<Room> rooms = new ArrayList<>();
+        final List<Customer> customers = new ArrayList<>();
+        final List<Reservation> reservations = new ArrayList<>();
+        final IntList reservationLines = new IntList();
+
+        for (ImportLine line : lines) {
+            if (line.room != null) {
+                rooms.add(line.room);
+            } else if (line.customer != null) {
+                customers.add(line.customer);
+            }
+        }
+
+        reservationService.addRooms(rooms);
+        customerService.addCustomers(customers);
+
+        for (int index = 0; index < lines.length; index++) {
+            final ImportLine line = lines[index];
+
+            if (line.error != null) {
+                report.addReject(firstLineNumber + index, line.error);
+            } else if (line.email != null) {
+                final Customer customer = customerService.getCustomer(line.email);
+                final Room room = reservationService.getARoom(line.roomNumber);
+
+                if (customer == null) {
+                    report.addReject(firstLineNumber + index, "Unknown customer " + line.email);
+                } else if (room == null) {
+                    report.addReject(firstLineNumber + index, "Unknown room " + line.roomNumber);
+                } else {
+                    reservations.add(new Reservation(customer, room, line.checkInDate, line.checkOutDate));
+                    reservationLines.add(index);
+                }
+            }
+        }
+
+        final boolean[] added = reservationService.addReservationsIfAvailable(reservations);
+        int addedReservations = 0;
+
+        for (int index = 0; index < added.length; index++) {
+            if (added[index]) {
+                addedReservations++;
+            } else {
+                report.addReject(firstLineNumber + reservationLines.get(index),
+                        "Room " + reservations.get(index).getRoom().getRoomNumber() + " is already booked");
+            }
+        }
+
+        report.addLines(chunk.size());
+        report.addImported(rooms.size() + customers.size() + addedReservations);
+    }
+
+    /**
+     * Parses and validates a single line.
+     * @param line of the input
+     * @return the parsed line or a line with the reason why it was rejected
+     */
+    private ImportLine parse(final String line) {
+        final String trimmedLine = line.trim();
+        final ImportLine importLine = new ImportLine();
+
+        if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+            return importLine;
+        }
+
+        final String[] fields = trimmedLine.split(",", -1);
+
+        for (int index = 0; index < fields.length; index++) {
+            fields[index] = fields[index].trim();
+        }
+
+        try {
+            switch (fields[0].toLowerCase()) {
+                case "room" -> parseRoom(fields, importLine);
+                case "customer" -> parseCustomer(fields, importLine);
+                case "reservation" -> parseReservation(fields, importLine);
+                default -> importLine.error = "Unknown record " + fields[0];
+            }
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            importLine.error = "Invalid value in " + trimmedLine;
+        }
+
+        return importLine;
+    }
+
+    private void parseRoom(final String[] fields, final ImportLine importLine) {
+        if (hasFields(fields, 4, importLine)) {
+            importLine.room = new Room(fields[1], Double.parseDouble(fields[2]), RoomType.parse(fields[3]));
+        }
+    }
+
+    private void parseCustomer(final String[] fields, final ImportLine importLine) {
+        if (!hasFields(fields, 4, importLine)) {
+            return;
+        }
+
+        try {
+            importLine.customer = new Customer(fields[2], fields[3], fields[1]);
+        } catch (IllegalArgumentException ex) {
+            // the constructor validates the email
+            importLine.error = "Invalid email " + fields[1];
+        }
+    }
+
+    private void parseReservation(final String[] fields, final ImportLine importLine) {
+        if (!hasFields(fields, 5, importLine)) {
+            return;
+        }
+
+        final LocalDate checkIn = LocalDate.parse(fields[3], DATE_FORMAT);
+        final LocalDate checkOut = LocalDate.parse(fields[4], DATE_FORMAT);
+
+        if (!checkIn.isBefore(checkOut)) {
+            importLine.error = "Check-out is not after check-in";
+            return;
+        }
+
+        importLine.email = fields[1];
+        importLine.roomNumber = fields[2];
+        importLine.checkInDate = Date.from(checkIn.atStartOfDay(zone).toInstant());
+        importLine.checkOutDate = Date.from(checkOut.atStartOfDay(zone).toInstant());
+    }
+
+    private boolean hasFields(final String[] fields, final int count, final ImportLine importLine) {
+        if (fields.length != count) {
+            importLine.error = "Expected " + count + " fields for " + fields[0];
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * A parsed line, only the fields of its record are set.
+     */
+    private static class ImportLine {
+        private Room room;
+        private Customer customer;
+        private String email;
+        private String roomNumber;
+        private Date checkInDate;
+        private Date checkOutDate;
+        private String error;
+    }
+}
@@ -0,0 +1,86 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.Collection;
+import java.util.Date;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes rooms, customers and reservations as JSON objects and reads and writes
+ * dates as mm/dd/yyyy in the time zone of the hotel, for the HTTP API and the
+ * results of batch scripts.
+ */
+public class HotelJson {
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private HotelJson() {}
+
+    /**
+     * Parses a date like 02/01/2022.
+     * @param date text of the date
+     * @return start of the day in the time zone of the hotel
+     * @throws java.time.format.DateTimeParseException when the text is not such a date
+     */
+    public static Date parseDate(final String date) {
+        return Date.from(LocalDate.parse(date, DATE_FORMAT).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public static String formatDate(final Date date) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()));
+    }
+
+    public static String toJson(final Room room) {
+        return "{\"roomNumber\":" + Json.quote(room.getRoomNumber())
+                + ",\"price\":" + room.getPrice()
+                + ",\"roomType\":" + Json.quote(room.getRoomType().name()) + "}";
+    }
+
+    public static String toJson(final Customer customer) {
+        return "{\"email\":" + Json.quote(customer.getEmail())
+                + ",\"firstName\":" + Json.quote(customer.getFirstName())
+                + ",\"lastName\":" + Json.quote(customer.getLastName()) + "}";
+    }
+
+    public static String toJson(final Reservation reservation) {
+        return "{\"customer\":" + toJson(reservation.getCustomer())
+                + ",\"room\":" + toJson(reservation.getRoom())
+                + ",\"checkIn\":" + Json.quote(formatDate(reservation.getCheckInDate()))
+                + ",\"checkOut\":" + Json.quote(formatDate(reservation.getCheckOutDate())) + "}";
+    }
+
+    public static String toJson(final OccupancyStatistics statistics) {
+        return "{\"periodStart\":" + Json.quote(formatDate(statistics.getPeriodStart()))
+                + ",\"periodEnd\":" + Json.quote(formatDate(statistics.getPeriodEnd()))
+                + ",\"roomType\":" + Json.quote(statistics.getRoomType().name())
+                + ",\"availableRoomNights\":" + statistics.getAvailableRoomNights()
+                + ",\"soldRoomNights\":" + statistics.getSoldRoomNights()
+                + ",\"occupancyRate\":" + statistics.getOccupancyRate()
+                + ",\"revenue\":" + statistics.getRevenue()
+                + ",\"averageDailyRate\":" + statistics.getAverageDailyRate()
+                + ",\"revenuePerAvailableRoom\":" + statistics.getRevenuePerAvailableRoom() + "}";
+    }
+
+    public static String toJson(final DailyManifest manifest) {
+        return "{\"date\":" + Json.quote(formatDate(manifest.getDate()))
+                + ",\"arrivals\":" + toJsonArray(manifest.getArrivals(), HotelJson::toJson)
+                + ",\"departures\":" + toJsonArray(manifest.getDepartures(), HotelJson::toJson)
+                + ",\"inHouse\":" + toJsonArray(manifest.getInHouse(), HotelJson::toJson) + "}";
+    }
+
+    public static <T> String toJsonArray(final Collection<T> values, final Function<T, String> toJson) {
+        return values.stream().map(toJson).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * Converts a page of a listing, the next cursor is null on the last page.
+     */
+    public static <T> String toJson(final Page<T> page, final Function<T, String> toJson) {
+        return "{\"items\":" + toJsonArray(page.getItems(), toJson)
+                + ",\"nextCursor\":" + (page.hasNext() ? Integer.toString(page.getNextCursor()) : "null") + "}";
+    }
+}
@@ -0,0 +1,129 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the hotel: the latencies of the operations of the resources,
+ * counters and gauges with the size of the hotel. All of them are
+ * registered as platform MBeans in the domain "hotel", so they can be
+ * watched with JConsole or any other JMX client.
+ */
+public class HotelMetrics implements HotelMetricsMBean {
+
+    private static final HotelMetrics SINGLETON = new HotelMetrics();
+    private static final String DOMAIN = "hotel";
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final LongAdder emptySearches = new LongAdder();
+
+    private HotelMetrics() {
+        registerMBean(this, DOMAIN + ":type=Hotel");
+    }
+
+    public static HotelMetrics getSingleton() {
+        return SINGLETON;
+    }
+
+    /**
+     * Gets the metrics of an operation, they are created and registered on the first call.
+     * @param name of the operation, e.g. HotelResource.findARoom
+     * @return the metrics
+     */
+    public OperationMetrics operation(final String name) {
+        return operations.computeIfAbsent(name, newName -> {
+            final OperationMetrics metrics = new OperationMetrics(newName);
+
+            registerMBean(metrics, DOMAIN + ":type=Operation,name=" + ObjectName.quote(newName));
+            return metrics;
+        });
+    }
+
+    /**
+     * Registers further statistics as platform MBean.
+     * @param mbean which implements its management interface
+     * @param type of the MBean, e.g. AvailabilityCache
+     */
+    public void register(final Object mbean, final String type) {
+        registerMBean(mbean, DOMAIN + ":type=" + type);
+    }
+
+    /**
+     * Counts a search which found no room.
+     */
+    public void recordEmptySearch() {
+        emptySearches.increment();
+    }
+
+    @Override
+    public int getRoomCount() {
+        return ReservationService.getSingleton().getRoomCount();
+    }
+
+    @Override
+    public int getCustomerCount() {
+        return CustomerService.getSingleton().getCustomerCount();
+    }
+
+    @Override
+    public int getReservationCount() {
+        return ReservationService.getSingleton().getActiveReservationCount();
+    }
+
+    @Override
+    public long getEmptySearchCount() {
+        return emptySearches.sum();
+    }
+
+    /**
+     * Gets the metrics of all operations ordered by name.
+     * @return the metrics
+     */
+    public Collection<OperationMetrics> getOperations() {
+        final List<OperationMetrics> sortedOperations = new ArrayList<>(operations.values());
+
+        sortedOperations.sort((first, second) -> first.getName().compareTo(second.getName()));
+        return sortedOperations;
+    }
+
+    /**
+     * Creates a table with the percentiles of all operations which were called
+     * and the gauges of the hotel.
+     * @return the summary
+     */
+    public String getSummary() {
+        final StringBuilder summary = new StringBuilder(String.format("%-40s %10s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "Mean us", "p50 us", "p99 us", "p999 us", "Max us"));
+
+        for (OperationMetrics metrics : getOperations()) {
+            if (metrics.getCount() > 0) {
+                summary.append(String.format("%-40s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", metrics.getName(),
+                        metrics.getCount(), metrics.getMeanMicros(), metrics.get50thPercentileMicros(),
+                        metrics.get99thPercentileMicros(), metrics.get999thPercentileMicros(),
+                        metrics.getMaxMicros()));
+            }
+        }
+
+        final AvailabilityCacheMBean cache = ReservationService.getSingleton().getAvailabilityCache();
+
+        return summary.append(String.format("Rooms: %d, Customers: %d, Reservations: %d, Searches without rooms: %d%n",
+                        getRoomCount(), getCustomerCount(), getReservationCount(), getEmptySearchCount()))
+                .append(String.format("Availability cache: %d ranges, %d hits, %d misses, %d evictions, "
+                                + "%d invalidations%n", cache.getSize(), cache.getHitCount(), cache.getMissCount(),
+                        cache.getEvictionCount(), cache.getInvalidationCount()))
+                .toString();
+    }
+
+    private static void registerMBean(final Object mbean, final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (JMException ex) {
+            System.err.println("Metrics " + name + " could not be registered: " + ex.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Management interface of the gauges and counters of the hotel.
+ */
+public interface HotelMetricsMBean {
+
+    int getRoomCount();
+
+    int getCustomerCount();
+
+    /**
+     * Gets the number of reservations which are not cancelled.
+     */
+    int getReservationCount();
+
+    long getEmptySearchCount();
+}
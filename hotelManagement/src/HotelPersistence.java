@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Restores the hotel from the latest snapshot and the journal on startup
+ * and records all further changes until the application exits.
+ * Every snapshot starts a new generation of the journal, the snapshot of
+ * a generation plus its journals contain the whole state of the hotel.
+ */
+public class HotelPersistence {
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("hotel-(\\d+)\\.journal");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("hotel-(\\d+)\\.snapshot");
+
+    private final Path dataDirectory;
+    private final ReservationJournal journal;
+    private long generation;
+
+    private HotelPersistence(final Path dataDirectory, final ReservationJournal journal, final long generation) {
+        this.dataDirectory = dataDirectory;
+        this.journal = journal;
+        this.generation = generation;
+    }
+
+    /**
+     * Loads the latest snapshot and replays the following journals into the
+     * services, then attaches a journal for the following changes.
+     * @param dataDirectory where the snapshots and journals are stored
+     * @param durability when changes are forced to the disk
+     * @param snapshotIntervalMinutes how often a snapshot is taken, 0 for never
+     * @return the started persistence
+     * @throws IOException when the data can't be read or the journal can't be opened
+     */
+    public static HotelPersistence start(final Path dataDirectory, final JournalDurability durability,
+                                         final long snapshotIntervalMinutes) throws IOException {
+        Files.createDirectories(dataDirectory);
+
+        final long snapshotGeneration = latestGeneration(dataDirectory, SNAPSHOT_FILE);
+
+        if (snapshotGeneration >= 0) {
+            ReservationSnapshot.load(snapshotFile(dataDirectory, snapshotGeneration));
+        }
+
+        long generation = Math.max(snapshotGeneration, 0);
+        long validBytes = 0;
+
+        for (long journalGeneration : generations(dataDirectory, JOURNAL_FILE)) {
+            if (journalGeneration >= generation) {
+                generation = journalGeneration;
+                validBytes = ReservationJournal.replay(journalFile(dataDirectory, journalGeneration));
+            }
+        }
+
+        final ReservationJournal journal =
+                new ReservationJournal(journalFile(dataDirectory, generation), durability, validBytes);
+        final HotelPersistence persistence = new HotelPersistence(dataDirectory, journal, generation);
+
+        CustomerService.getSingleton().setJournal(journal);
+        ReservationService.getSingleton().setJournal(journal);
+
+        persistence.deleteOlderGenerations(snapshotGeneration);
+        persistence.scheduleSnapshots(snapshotIntervalMinutes);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+
+        return persistence;
+    }
+
+    public ReservationJournal getJournal() {
+        return this.journal;
+    }
+
+    /**
+     * Takes a snapshot while bookings go on. The journal continues in a new
+     * generation first, so every change is either in the snapshot or in the
+     * new journal. Changes which are in both are skipped during the replay.
+     * @throws IOException when the snapshot can't be written
+     */
+    public synchronized void takeSnapshot() throws IOException {
+        final long nextGeneration = generation + 1;
+        final Path snapshotFile = snapshotFile(dataDirectory, nextGeneration);
+        final Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        journal.roll(journalFile(dataDirectory, nextGeneration));
+        generation = nextGeneration;
+
+        ReservationSnapshot.write(temporaryFile);
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+        deleteOlderGenerations(nextGeneration);
+    }
+
+    private void scheduleSnapshots(final long snapshotIntervalMinutes) {
+        if (snapshotIntervalMinutes <= 0) {
+            return;
+        }
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (IOException ex) {
+                System.err.println("Snapshot failed: " + ex.getLocalizedMessage());
+            }
+        }, snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Deletes the snapshots and journals which are covered by the snapshot of the generation.
+     */
+    private void deleteOlderGenerations(final long snapshotGeneration) throws IOException {
+        for (long olderGeneration : generations(dataDirectory, SNAPSHOT_FILE)) {
+            if (olderGeneration < snapshotGeneration) {
+                Files.deleteIfExists(snapshotFile(dataDirectory, olderGeneration));
+            }
+        }
+        for (long olderGeneration : generations(dataDirectory, JOURNAL_FILE)) {
+            if (olderGeneration < snapshotGeneration) {
+                Files.deleteIfExists(journalFile(dataDirectory, olderGeneration));
+            }
+        }
+    }
+
+    private static long latestGeneration(final Path dataDirectory, final Pattern filePattern) throws IOException {
+        final List<Long> generations = generations(dataDirectory, filePattern);
+
+        return generations.isEmpty() ? -1 : generations.get(generations.size() - 1);
+    }
+
+    private static List<Long> generations(final Path dataDirectory, final Pattern filePattern) throws IOException {
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            return files.map(file -> filePattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path journalFile(final Path dataDirectory, final long generation) {
+        return dataDirectory.resolve("hotel-" + generation + ".journal");
+    }
+
+    private static Path snapshotFile(final Path dataDirectory, final long generation) {
+        return dataDirectory.resolve("hotel-" + generation + ".snapshot");
+    }
+}
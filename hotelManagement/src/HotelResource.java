@@ -1,10 +1,40 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class HotelResource {
 
     private static final HotelResource SINGLETON = new HotelResource();
+    private static final OperationMetrics GET_CUSTOMER =
+            HotelMetrics.getSingleton().operation("HotelResource.getCustomer");
+    private static final OperationMetrics CREATE_A_CUSTOMER =
+            HotelMetrics.getSingleton().operation("HotelResource.createACustomer");
+    private static final OperationMetrics GET_ROOM =
+            HotelMetrics.getSingleton().operation("HotelResource.getRoom");
+    private static final OperationMetrics BOOK_A_ROOM =
+            HotelMetrics.getSingleton().operation("HotelResource.bookARoom");
+    private static final OperationMetrics BOOK_A_ROOM_IF_AVAILABLE =
+            HotelMetrics.getSingleton().operation("HotelResource.bookARoomIfAvailable");
+    private static final OperationMetrics BOOK_ROOMS =
+            HotelMetrics.getSingleton().operation("HotelResource.bookRooms");
+    private static final OperationMetrics CANCEL_RESERVATION =
+            HotelMetrics.getSingleton().operation("HotelResource.cancelReservation");
+    private static final OperationMetrics MODIFY_RESERVATION =
+            HotelMetrics.getSingleton().operation("HotelResource.modifyReservation");
+    private static final OperationMetrics GET_CUSTOMERS_RESERVATIONS =
+            HotelMetrics.getSingleton().operation("HotelResource.getCustomersReservations");
+    private static final OperationMetrics FIND_A_ROOM =
+            HotelMetrics.getSingleton().operation("HotelResource.findARoom");
+    private static final OperationMetrics FIND_CHEAPEST_ROOMS =
+            HotelMetrics.getSingleton().operation("HotelResource.findCheapestRooms");
+    private static final OperationMetrics FIND_ALTERNATIVE_ROOMS =
+            HotelMetrics.getSingleton().operation("HotelResource.findAlternativeRooms");
+    private static final OperationMetrics FIND_NEAREST_ALTERNATIVE_ROOMS =
+            HotelMetrics.getSingleton().operation("HotelResource.findNearestAlternativeRooms");
+    private static final OperationMetrics ADD_DEFAULT_PLUS_DAYS =
+            HotelMetrics.getSingleton().operation("HotelResource.addDefaultPlusDays");
 
     private final CustomerService customerService = CustomerService.getSingleton();
     private final ReservationService reservationService = ReservationService.getSingleton();
@@ -16,7 +46,13 @@ public class HotelResource {
     }
 
     public Customer getCustomer(String email) {
-        return customerService.getCustomer(email);
+        final long start = System.nanoTime();
+
+        try {
+            return customerService.getCustomer(email);
+        } finally {
+            GET_CUSTOMER.record(start);
+        }
     }
 
     /**
@@ -26,23 +62,129 @@ public class HotelResource {
      * @param lastName of the user
      */
     public void createACustomer(String email, String firstName, String lastName) {
-        customerService.addCustomer(email, firstName, lastName);
+        final long start = System.nanoTime();
+
+        try {
+            customerService.addCustomer(email, firstName, lastName);
+        } finally {
+            CREATE_A_CUSTOMER.record(start);
+        }
     }
 
     public Room getRoom(String roomNumber) {
-        return reservationService.getARoom(roomNumber);
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.getARoom(roomNumber);
+        } finally {
+            GET_ROOM.record(start);
+        }
     }
 
     /**
-     * This method books the room.
+     * This method books the room, a room which is already booked
+     * for these dates is not booked twice.
      * @param customerEmail
      * @param room which is booked
      * @param checkInDate date of the checkin
      * @param checkOutDate date of the checkout
-     * @return reservation of the room
+     * @return reservation of the room or null when it is already booked
      */
     public Reservation bookARoom(String customerEmail, Room room, Date checkInDate, Date checkOutDate) {
-        return reservationService.reserveARoom(getCustomer(customerEmail), room, checkInDate, checkOutDate);
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.reserveARoom(
+                    customerService.getCustomer(customerEmail), room, checkInDate, checkOutDate);
+        } finally {
+            BOOK_A_ROOM.record(start);
+        }
+    }
+
+    /**
+     * This method books the room only if it
+     * is still free for these dates.
+     * @param customerEmail
+     * @param room which is booked
+     * @param checkInDate date of the checkin
+     * @param checkOutDate date of the checkout
+     * @return reservation of the room or null when it was booked in the meantime
+     */
+    public Reservation bookARoomIfAvailable(String customerEmail, Room room, Date checkInDate, Date checkOutDate) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.reserveARoomIfAvailable(
+                    customerService.getCustomer(customerEmail), room, checkInDate, checkOutDate);
+        } finally {
+            BOOK_A_ROOM_IF_AVAILABLE.record(start);
+        }
+    }
+
+    /**
+     * Books all rooms of a group or none of them.
+     * @param customerEmail mail of the customer
+     * @param bookings rooms with their dates
+     * @return reservations of the rooms or null when one of the rooms was booked in the meantime
+     */
+    public List<Reservation> bookRooms(final String customerEmail, final List<RoomBooking> bookings) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.reserveRoomsIfAvailable(customerService.getCustomer(customerEmail), bookings);
+        } finally {
+            BOOK_ROOMS.record(start);
+        }
+    }
+
+    /**
+     * Books all rooms for the same dates or none of them.
+     * @param customerEmail mail of the customer
+     * @param rooms which are booked
+     * @param checkInDate date of the checkin
+     * @param checkOutDate date of the checkout
+     * @return reservations of the rooms or null when one of the rooms was booked in the meantime
+     */
+    public List<Reservation> bookRooms(final String customerEmail, final Collection<Room> rooms,
+                                       final Date checkInDate, final Date checkOutDate) {
+        return bookRooms(customerEmail, rooms.stream()
+                .map(room -> new RoomBooking(room, checkInDate, checkOutDate))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Cancels a reservation of the customer.
+     * @param reservation e.g. one of {@link #getCustomersReservations(String)}
+     * @return false when there is no such reservation
+     */
+    public boolean cancelReservation(final Reservation reservation) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.cancelReservation(reservation);
+        } finally {
+            CANCEL_RESERVATION.record(start);
+        }
+    }
+
+    /**
+     * Changes the room or the dates of a reservation, it keeps the old ones when the room isn't free.
+     * @param reservation e.g. one of {@link #getCustomersReservations(String)}
+     * @param room which is booked now
+     * @param checkInDate new date of the checkin
+     * @param checkOutDate new date of the checkout
+     * @return the changed reservation or null when the room is booked for the new dates
+     * @throws IllegalArgumentException when there is no such reservation
+     */
+    public Reservation modifyReservation(final Reservation reservation, final Room room,
+                                         final Date checkInDate, final Date checkOutDate) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.modifyReservation(reservation, room, checkInDate, checkOutDate);
+        } finally {
+            MODIFY_RESERVATION.record(start);
+        }
     }
 
     /**
@@ -52,24 +194,92 @@ public class HotelResource {
      * @return all reservations of the user
      */
     public Collection<Reservation> getCustomersReservations(String customerEmail) {
-        final Customer customer = getCustomer(customerEmail);
+        final long start = System.nanoTime();
 
-        if (customer == null) {
-            return Collections.emptyList();
-        }
+        try {
+            final Customer customer = customerService.getCustomer(customerEmail);
 
-        return reservationService.getCustomersReservation(getCustomer(customerEmail));
+            if (customer == null) {
+                return Collections.emptyList();
+            }
+
+            return reservationService.getCustomersReservation(customer);
+        } finally {
+            GET_CUSTOMERS_RESERVATIONS.record(start);
+        }
     }
 
     public Collection<Room> findARoom(final Date checkIn, final Date checkOut) {
-        return reservationService.findRooms(checkIn, checkOut);
+        final long start = System.nanoTime();
+
+        try {
+            final Collection<Room> rooms = reservationService.findRooms(checkIn, checkOut);
+
+            if (rooms.isEmpty()) {
+                HotelMetrics.getSingleton().recordEmptySearch();
+            }
+
+            return rooms;
+        } finally {
+            FIND_A_ROOM.record(start);
+        }
+    }
+
+    /**
+     * Finds the cheapest free rooms of the type in the price range.
+     * @param checkIn date
+     * @param checkOut date
+     * @param roomType type of the rooms or null for all rooms
+     * @param minPrice lowest price per night or null
+     * @param maxPrice highest price per night or null
+     * @param limit maximal number of rooms
+     * @return the rooms ordered by their price, the cheapest first
+     */
+    public List<Room> findCheapestRooms(final Date checkIn, final Date checkOut, final RoomType roomType,
+                                        final Double minPrice, final Double maxPrice, final int limit) {
+        final long start = System.nanoTime();
+
+        try {
+            final List<Room> rooms = reservationService.findCheapestRooms(checkIn, checkOut, roomType,
+                    minPrice, maxPrice, limit);
+
+            if (rooms.isEmpty()) {
+                HotelMetrics.getSingleton().recordEmptySearch();
+            }
+
+            return rooms;
+        } finally {
+            FIND_CHEAPEST_ROOMS.record(start);
+        }
     }
 
     public Collection<Room> findAlternativeRooms(final Date checkIn, final Date checkOut) {
-        return reservationService.findAlternativeRooms(checkIn, checkOut);
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.findAlternativeRooms(checkIn, checkOut);
+        } finally {
+            FIND_ALTERNATIVE_ROOMS.record(start);
+        }
+    }
+
+    public List<AlternativeRoom> findNearestAlternativeRooms(final Date checkIn, final Date checkOut) {
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.findNearestAlternativeRooms(checkIn, checkOut);
+        } finally {
+            FIND_NEAREST_ALTERNATIVE_ROOMS.record(start);
+        }
     }
 
     public Date addDefaultPlusDays(final Date date) {
-        return reservationService.addDefaultPlusDays(date);
+        final long start = System.nanoTime();
+
+        try {
+            return reservationService.addDefaultPlusDays(date);
+        } finally {
+            ADD_DEFAULT_PLUS_DAYS.record(start);
+        }
     }
 }
@@ -0,0 +1,70 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Array of values indexed by dense ids which grows when a larger id is set.
+ * Values can be read at any time without locking, writes are synchronized
+ * so that no value is lost while the array grows.
+ * @param <T> type of the values
+ */
+public class IdArray<T> {
+
+    private volatile AtomicReferenceArray<T> values = new AtomicReferenceArray<>(16);
+
+    /**
+     * Gets the value of the id.
+     * @param id of the value
+     * @return the value or null when it isn't set
+     */
+    public T get(final int id) {
+        final AtomicReferenceArray<T> values = this.values;
+
+        return id >= 0 && id < values.length() ? values.get(id) : null;
+    }
+
+    /**
+     * Sets the value of the id.
+     * @param id of the value
+     * @param value of the id
+     * @return the previous value or null
+     */
+    public synchronized T set(final int id, final T value) {
+        ensureCapacity(id);
+        return values.getAndSet(id, value);
+    }
+
+    /**
+     * Gets the value of the id and creates it when it isn't set yet.
+     * @param id of the value
+     * @param create creates the value for the id
+     * @return the value
+     */
+    public T computeIfAbsent(final int id, final IntFunction<T> create) {
+        final T value = get(id);
+
+        return value != null ? value : createIfAbsent(id, create);
+    }
+
+    private synchronized T createIfAbsent(final int id, final IntFunction<T> create) {
+        ensureCapacity(id);
+
+        if (values.get(id) == null) {
+            values.set(id, create.apply(id));
+        }
+
+        return values.get(id);
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id < values.length()) {
+            return;
+        }
+
+        final AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(Math.max(id + 1, values.length() * 2));
+
+        for (int index = 0; index < values.length(); index++) {
+            grown.set(index, values.get(index));
+        }
+        values = grown;
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns dense int ids to keys like room numbers or email addresses, so that
+ * the indexes can use arrays instead of maps. The ids start at 0, are never
+ * reused and the value of an id is optional.
+ * @param <T> type of the values
+ */
+public class IdDictionary<T> {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final IdArray<T> values = new IdArray<>();
+    private final AtomicInteger valueCount = new AtomicInteger();
+    private volatile int size;
+
+    /**
+     * Gets the id of the key.
+     * @param key e.g. the room number
+     * @return the id or -1 when the key has no id
+     */
+    public int getId(final String key) {
+        final Integer id = ids.get(key);
+
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the id of the key and assigns the next id when it has none.
+     * @param key e.g. the room number
+     * @return the id
+     */
+    public int intern(final String key) {
+        final Integer id = ids.get(key);
+
+        return id != null ? id : assignId(key);
+    }
+
+    private synchronized int assignId(final String key) {
+        final Integer id = ids.get(key);
+
+        if (id != null) {
+            return id;
+        }
+
+        ids.put(key, size);
+        return size++;
+    }
+
+    /**
+     * Gets the value of the key.
+     * @param key e.g. the room number
+     * @return the value or null
+     */
+    public T get(final String key) {
+        final Integer id = ids.get(key);
+
+        return id != null ? values.get(id) : null;
+    }
+
+    public T get(final int id) {
+        return values.get(id);
+    }
+
+    /**
+     * Sets the value of the key, the key gets an id if it has none.
+     * @param key e.g. the room number
+     * @param value of the key
+     * @return the id of the key
+     */
+    public int put(final String key, final T value) {
+        final int id = intern(key);
+
+        if (values.set(id, value) == null && value != null) {
+            valueCount.incrementAndGet();
+        }
+
+        return id;
+    }
+
+    /**
+     * Gets the number of keys with a value.
+     * @return number of values
+     */
+    public int getValueCount() {
+        return valueCount.get();
+    }
+
+    /**
+     * Gets the number of ids, all ids are below.
+     * @return number of ids
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress of an import: how many lines were read, imported and rejected.
+ * Only the first rejects are kept, so the report stays small for big files.
+ */
+public class ImportReport {
+
+    private static final int KEPT_REJECTS = 100;
+
+    private final long startNanos = System.nanoTime();
+    private final List<String> rejects = new ArrayList<>();
+    private long lines;
+    private long imported;
+    private long rejected;
+
+    public long getLines() {
+        return this.lines;
+    }
+
+    public long getImported() {
+        return this.imported;
+    }
+
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    public List<String> getRejects() {
+        return Collections.unmodifiableList(this.rejects);
+    }
+
+    /**
+     * Gets the imported and rejected records per second since the import started.
+     * @return records per second
+     */
+    public double getRecordsPerSecond() {
+        final double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+
+        return seconds > 0 ? (imported + rejected) / seconds : 0;
+    }
+
+    void addLines(final long count) {
+        lines += count;
+    }
+
+    void addImported(final long count) {
+        imported += count;
+    }
+
+    void addReject(final long lineNumber, final String reason) {
+        rejected++;
+
+        if (rejects.size() < KEPT_REJECTS) {
+            rejects.add("Line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public String toString() {
+        return lines + " lines read, " + imported + " imported, " + rejected + " rejected, "
+                + Math.round(getRecordsPerSecond()) + " records/s";
+    }
+}
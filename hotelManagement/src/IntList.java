@@ -0,0 +1,54 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Growable list of primitive ints, e.g. the ids of the reservations of a customer.
+ * It is not thread-safe, callers synchronize on the list.
+ */
+public class IntList {
+
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(final int capacity) {
+        this.values = new int[capacity];
+    }
+
+    public void add(final int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+        values[size++] = value;
+    }
+
+    public int get(final int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes the values which match, the other values keep their order.
+     * @param filter selects the values which are removed
+     */
+    public void removeIf(final IntPredicate filter) {
+        int kept = 0;
+
+        for (int index = 0; index < size; index++) {
+            if (!filter.test(values[index])) {
+                values[kept++] = values[index];
+            }
+        }
+        size = kept;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Defines when a change written to the journal is forced to the disk.
+ */
+public enum JournalDurability {
+    /**
+     * Every call waits until its change is on the disk. Calls which arrive
+     * during the same flush share one fsync.
+     */
+    SYNC,
+    /**
+     * Calls return immediately, the changes are forced to the disk
+     * in the background every few milliseconds.
+     */
+    BATCHED
+}
@@ -0,0 +1,177 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP API: escaping of strings and
+ * parsing of flat objects with string, number and boolean values.
+ */
+public class Json {
+
+    private Json() {}
+
+    /**
+     * Quotes and escapes a string value.
+     * @param value which is written, null becomes null
+     * @return the JSON string
+     */
+    public static String quote(final String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        final StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+
+        for (int index = 0; index < value.length(); index++) {
+            final char character = value.charAt(index);
+
+            switch (character) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (character < 0x20) {
+                        json.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        json.append(character);
+                    }
+                }
+            }
+        }
+
+        return json.append('"').toString();
+    }
+
+    /**
+     * Parses an object whose values are strings, numbers, booleans or null.
+     * @param json text of the object
+     * @return the values by name, numbers and booleans as their text
+     * @throws IllegalArgumentException when the text is not such an object
+     */
+    public static Map<String, String> parseObject(final String json) {
+        final Parser parser = new Parser(json);
+        final Map<String, String> values = new HashMap<>();
+
+        parser.expect('{');
+
+        if (!parser.consume('}')) {
+            do {
+                final String name = parser.readString();
+
+                parser.expect(':');
+                values.put(name, parser.readValue());
+            } while (parser.consume(','));
+
+            parser.expect('}');
+        }
+
+        parser.expectEnd();
+        return values;
+    }
+
+    private static class Parser {
+
+        private final String json;
+        private int position;
+
+        private Parser(final String json) {
+            this.json = json;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean consume(final char expected) {
+            skipWhitespace();
+
+            if (position < json.length() && json.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private void expect(final char expected) {
+            if (!consume(expected)) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at " + position);
+            }
+        }
+
+        private void expectEnd() {
+            skipWhitespace();
+
+            if (position != json.length()) {
+                throw new IllegalArgumentException("Unexpected content at " + position);
+            }
+        }
+
+        private String readValue() {
+            skipWhitespace();
+
+            if (position < json.length() && json.charAt(position) == '"') {
+                return readString();
+            }
+
+            final int start = position;
+
+            while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+                position++;
+            }
+
+            final String literal = json.substring(start, position);
+
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Expected a value at " + start);
+            }
+
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String readString() {
+            expect('"');
+            final StringBuilder value = new StringBuilder();
+
+            while (position < json.length()) {
+                final char character = json.charAt(position++);
+
+                if (character == '"') {
+                    return value.toString();
+                }
+
+                if (character != '\\') {
+                    value.append(character);
+                    continue;
+                }
+
+                if (position >= json.length()) {
+                    break;
+                }
+
+                final char escaped = json.charAt(position++);
+
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > json.length()) {
+                            throw new IllegalArgumentException("Invalid escape at " + position);
+                        }
+                        value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+
+            throw new IllegalArgumentException("Unterminated string");
+        }
+    }
+}
@@ -1,11 +1,19 @@
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 public class MainMenu {
 
     private static final String DEFAULT_DATE_FORMAT = "MM/dd/yyyy";
+    private static final int OTHER_ALTERNATIVE_DATES = 5;
+    private static final int SHOWN_ROOMS = 20;
     private static final HotelResource hotelResource = HotelResource.getSingleton();
 
     /**
@@ -54,30 +62,76 @@ public class MainMenu {
         Date checkOut = getInputDate(scanner);
 
         if (checkIn != null && checkOut != null) {
-            Collection<Room> availableRooms = hotelResource.findARoom(checkIn, checkOut);
+            System.out.println("Enter room type: 1 for single bed, 2 for double bed or leave empty for all rooms:");
+            final RoomType roomType = getInputRoomType(scanner);
+
+            System.out.println("Enter the highest price per night or leave empty for any price:");
+            final Double maxPrice = getInputPrice(scanner);
+
+            Collection<Room> availableRooms = hotelResource.findCheapestRooms(checkIn, checkOut, roomType,
+                    null, maxPrice, SHOWN_ROOMS);
 
             if (availableRooms.isEmpty()) {
-                Collection<Room> alternativeRooms = hotelResource.findAlternativeRooms(checkIn, checkOut);
+                final List<AlternativeRoom> alternativeRooms = hotelResource
+                        .findNearestAlternativeRooms(checkIn, checkOut).stream()
+                        .filter(alternativeRoom -> matches(alternativeRoom.getRoom(), roomType, maxPrice))
+                        .collect(Collectors.toList());
 
                 if (alternativeRooms.isEmpty()) {
                     System.out.println("No rooms found.");
                 } else {
-                    final Date alternativeCheckIn = hotelResource.addDefaultPlusDays(checkIn);
-                    final Date alternativeCheckOut = hotelResource.addDefaultPlusDays(checkOut);
+                    final AlternativeRoom nearestRoom = alternativeRooms.get(0);
+                    final Date alternativeCheckIn = nearestRoom.getCheckInDate();
+                    final Date alternativeCheckOut = nearestRoom.getCheckOutDate();
+                    final Collection<Room> nearestRooms = alternativeRooms.stream()
+                            .filter(alternativeRoom -> alternativeRoom.getOffsetDays() == nearestRoom.getOffsetDays())
+                            .map(AlternativeRoom::getRoom)
+                            .collect(Collectors.toList());
+
                     System.out.println("We've only found rooms on alternative dates:" +
                             "\nCheck-In Date:" + alternativeCheckIn +
                             "\nCheck-Out Date:" + alternativeCheckOut);
 
-                    printRooms(alternativeRooms);
-                    reserveRoom(scanner, alternativeCheckIn, alternativeCheckOut, alternativeRooms);
+                    printRooms(nearestRooms);
+                    printOtherAlternativeDates(alternativeRooms, nearestRoom.getOffsetDays());
+                    reserveRoom(scanner, alternativeCheckIn, alternativeCheckOut, nearestRooms);
                 }
             } else {
+                System.out.println("The cheapest free rooms:");
                 printRooms(availableRooms);
                 reserveRoom(scanner, checkIn, checkOut, availableRooms);
             }
         }
     }
 
+    private static boolean matches(final Room room, final RoomType roomType, final Double maxPrice) {
+        return (roomType == null || room.getRoomType() == roomType)
+                && (maxPrice == null || room.getPrice() == null || room.getPrice() <= maxPrice);
+    }
+
+    /**
+     * Prints the next nearest alternative dates with the
+     * number of rooms which are free on them.
+     * @param alternativeRooms ordered by the distance to the wished dates
+     * @param shownOffset offset of the dates which were already shown
+     */
+    private static void printOtherAlternativeDates(final List<AlternativeRoom> alternativeRooms,
+                                                   final int shownOffset) {
+        final Map<Integer, List<AlternativeRoom>> roomsByOffset = alternativeRooms.stream()
+                .filter(alternativeRoom -> alternativeRoom.getOffsetDays() != shownOffset)
+                .collect(Collectors.groupingBy(AlternativeRoom::getOffsetDays, LinkedHashMap::new,
+                        Collectors.toList()));
+
+        if (roomsByOffset.isEmpty()) {
+            return;
+        }
+
+        System.out.println("Other dates with free rooms:");
+        roomsByOffset.values().stream().limit(OTHER_ALTERNATIVE_DATES).forEach(roomsOfOffset ->
+                System.out.println(roomsOfOffset.get(0).getCheckInDate() + " - "
+                        + roomsOfOffset.get(0).getCheckOutDate() + ": " + roomsOfOffset.size() + " room(s)"));
+    }
+
     /**
      * Gets the user input for a date and catch the error
      * when the user didn't follow instructions.
@@ -94,6 +148,46 @@ public class MainMenu {
         return null;
     }
 
+    /**
+     * Gets the optional room type, an invalid type is asked again.
+     * @param scanner to get the users input
+     * @return the room type or null when the input is empty
+     */
+    private static RoomType getInputRoomType(final Scanner scanner) {
+        final String roomType = scanner.nextLine().trim();
+
+        if (roomType.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return RoomType.valueOfLabel(roomType);
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Invalid room type! Please, choose 1 for single bed, 2 for double bed or leave empty:");
+            return getInputRoomType(scanner);
+        }
+    }
+
+    /**
+     * Gets the optional price, an invalid price is asked again.
+     * @param scanner to get the users input
+     * @return the price or null when the input is empty
+     */
+    private static Double getInputPrice(final Scanner scanner) {
+        final String price = scanner.nextLine().trim();
+
+        if (price.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return Double.parseDouble(price);
+        } catch (NumberFormatException ex) {
+            System.out.println("Invalid price! Please, enter a number with a point (.) for decimals or leave empty:");
+            return getInputPrice(scanner);
+        }
+    }
+
     /**
      * Handles Input and Output and gets all
      * data to reserve a room. It also checks
@@ -133,16 +227,27 @@ private static void chooseRoomForReservation(final Scanner scanner, final Date c
         System.out.println("Customer not found.\nYou may need to create a new account.");
         createAccount();
     } else {
-        System.out.println("What room number would you like to reserve?");
-        final String roomNumber = scanner.nextLine();
-
-        if (rooms.stream().anyMatch(room -> room.getRoomNumber().equals(roomNumber))) {
-            final Room room = hotelResource.getRoom(roomNumber);
-
-            final Reservation reservation = hotelResource
-                    .bookARoom(customerEmail, room, checkInDate, checkOutDate);
-            System.out.println("Reservation created successfully!");
-            System.out.println(reservation);
+        System.out.println("What room number would you like to reserve? Separate room numbers by commas for a group.");
+        final List<String> roomNumbers = Arrays.stream(scanner.nextLine().split(","))
+                .map(String::trim).filter(roomNumber -> !roomNumber.isEmpty()).distinct()
+                .collect(Collectors.toList());
+
+        if (!roomNumbers.isEmpty() && roomNumbers.stream().allMatch(roomNumber -> rooms.stream()
+                .anyMatch(room -> room.getRoomNumber().equals(roomNumber)))) {
+            final List<Room> chosenRooms = roomNumbers.stream().map(hotelResource::getRoom)
+                    .collect(Collectors.toList());
+
+            final List<Reservation> reservations = chosenRooms.size() == 1
+                    ? Collections.singletonList(hotelResource
+                            .bookARoomIfAvailable(customerEmail, chosenRooms.get(0), checkInDate, checkOutDate))
+                    : hotelResource.bookRooms(customerEmail, chosenRooms, checkInDate, checkOutDate);
+
+            if (reservations == null || reservations.contains(null)) {
+                System.out.println("Error: room was booked in the meantime.\nStart reservation again.");
+            } else {
+                System.out.println("Reservation created successfully!");
+                reservations.forEach(System.out::println);
+            }
         } else {
             System.out.println("Error: room number not available.\nStart reservation again.");
         }
@@ -161,7 +266,7 @@ private static void chooseRoomForReservation(final Scanner scanner, final Date c
     }
 
     /**
-     * Gets user and search for his reservations
+     * Gets user and search for his reservations, one of them can be cancelled or changed
      */
     private static void seeMyReservation() {
         final Scanner scanner = new Scanner(System.in);
@@ -169,18 +274,109 @@ private static void chooseRoomForReservation(final Scanner scanner, final Date c
         System.out.println("Enter your Email format: name@domain.com");
         final String customerEmail = scanner.nextLine();
 
-        printReservations(hotelResource.getCustomersReservations(customerEmail));
+        final Collection<Reservation> reservations = hotelResource.getCustomersReservations(customerEmail);
+
+        printReservations(reservations);
+
+        if (reservations != null && !reservations.isEmpty()) {
+            changeReservation(scanner, List.copyOf(reservations));
+        }
     }
 
     /**
-     * prints reservations of the user
+     * prints reservations of the user with their number
      * @param reservations
      */
     private static void printReservations(final Collection<Reservation> reservations) {
         if (reservations == null || reservations.isEmpty()) {
             System.out.println("No reservations found.");
         } else {
-            reservations.forEach(reservation -> System.out.println("\n" + reservation));
+            int number = 1;
+
+            for (Reservation reservation : reservations) {
+                System.out.println("\n" + number++ + ".\n" + reservation);
+            }
+        }
+    }
+
+    /**
+     * Lets the user cancel one of the reservations or change its room or dates.
+     * @param scanner to get the users input
+     * @param reservations of the user in the order they were printed
+     */
+    private static void changeReservation(final Scanner scanner, final List<Reservation> reservations) {
+        System.out.println("Enter the number of a reservation to cancel or change it, or leave empty:");
+        final String number = scanner.nextLine().trim();
+
+        if (number.isEmpty()) {
+            return;
+        }
+
+        final Reservation reservation;
+
+        try {
+            reservation = reservations.get(Integer.parseInt(number) - 1);
+        } catch (NumberFormatException | IndexOutOfBoundsException ex) {
+            System.out.println("Error: Invalid reservation number.");
+            return;
+        }
+
+        System.out.println("Enter c to cancel or m to change the reservation:");
+        final String action = scanner.nextLine().trim().toLowerCase();
+
+        if ("c".equals(action)) {
+            System.out.println(hotelResource.cancelReservation(reservation)
+                    ? "Reservation cancelled." : "Error: reservation was already cancelled or changed.");
+        } else if ("m".equals(action)) {
+            modifyReservation(scanner, reservation);
+        }
+    }
+
+    /**
+     * Gets the new room and dates, empty inputs keep the previous ones.
+     */
+    private static void modifyReservation(final Scanner scanner, final Reservation reservation) {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
+
+        System.out.println("Enter the new room number or leave empty to keep room "
+                + reservation.getRoom().getRoomNumber() + ":");
+        final String roomNumber = scanner.nextLine().trim();
+        final Room room = roomNumber.isEmpty() ? reservation.getRoom() : hotelResource.getRoom(roomNumber);
+
+        if (room == null) {
+            System.out.println("Error: room number not found.");
+            return;
+        }
+
+        try {
+            System.out.println("Enter the new Check-In Date mm/dd/yyyy or leave empty to keep "
+                    + dateFormat.format(reservation.getCheckInDate()) + ":");
+            final String checkIn = scanner.nextLine().trim();
+            final Date checkInDate = checkIn.isEmpty() ? reservation.getCheckInDate() : dateFormat.parse(checkIn);
+
+            System.out.println("Enter the new Check-Out Date mm/dd/yyyy or leave empty to keep "
+                    + dateFormat.format(reservation.getCheckOutDate()) + ":");
+            final String checkOut = scanner.nextLine().trim();
+            final Date checkOutDate = checkOut.isEmpty() ? reservation.getCheckOutDate() : dateFormat.parse(checkOut);
+
+            if (!checkInDate.before(checkOutDate)) {
+                System.out.println("Error: Check-Out Date is not after the Check-In Date.");
+                return;
+            }
+
+            final Reservation modifiedReservation = hotelResource.modifyReservation(reservation, room,
+                    checkInDate, checkOutDate);
+
+            if (modifiedReservation == null) {
+                System.out.println("Error: room is booked for these dates.");
+            } else {
+                System.out.println("Reservation changed successfully!");
+                System.out.println(modifiedReservation);
+            }
+        } catch (ParseException ex) {
+            System.out.println("Error: Invalid date.");
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Error: reservation was already cancelled or changed.");
         }
     }
 
@@ -219,7 +415,7 @@ private static void chooseRoomForReservation(final Scanner scanner, final Date c
                 Welcome to the Hotel Reservation Application
                 --------------------------------------------
                 1. Find and reserve a room
-                2. See my reservations
+                2. See, change or cancel my reservations
                 3. Create an Account
                 4. Admin
                 5. Exit
@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calculates the occupancy and revenue of the rooms per period and room type.
+ * The rooms are split into partitions which are counted in parallel on the
+ * common fork/join pool, every partition reads the reservations of its rooms
+ * from their indexes without locking, so bookings are not blocked.
+ * Nights follow {@link ReservationDays}: a stay occupies the nights from the
+ * day of its check-in to the day before the first midnight at or after its
+ * check-out, so a stay with exact times, e.g. from 10:00 to 14:00, is sold
+ * as one night, the same as a search or the occupancy calendar sees it.
+ */
+public class OccupancyAnalytics {
+
+    private static final int ROOMS_PER_TASK = 64;
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private final Room[] rooms;
+    private final RoomReservations[] reservationsOfRooms;
+    private final int fromDay;
+    private final int toDay;
+    private final int[] periodStarts;
+    private final int[] periodOfNight;
+
+    /**
+     * Prepares a report over the rooms.
+     * @param rooms by id, null for ids without room
+     * @param reservationsOfRooms by id, null for rooms without reservations
+     * @param fromDay first night of the report
+     * @param toDay day after the last night of the report
+     * @param period length of the periods
+     */
+    public OccupancyAnalytics(final Room[] rooms, final RoomReservations[] reservationsOfRooms,
+                              final int fromDay, final int toDay, final ReportPeriod period) {
+        final IntList starts = new IntList();
+
+        this.rooms = rooms;
+        this.reservationsOfRooms = reservationsOfRooms;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.periodOfNight = new int[Math.max(0, toDay - fromDay)];
+
+        for (int day = fromDay; day < toDay; day++) {
+            if (day == fromDay || period.startOf(day) == day) {
+                starts.add(day);
+            }
+            periodOfNight[day - fromDay] = starts.size() - 1;
+        }
+
+        this.periodStarts = starts.toArray();
+    }
+
+    /**
+     * Counts the nights of all rooms in parallel.
+     * @return the statistics ordered by period and room type
+     */
+    public List<OccupancyStatistics> calculate() {
+        final Totals totals = ForkJoinPool.commonPool().invoke(new PartitionTask(0, rooms.length));
+        final long[] roomsOfType = new long[ROOM_TYPES.length];
+        final List<OccupancyStatistics> statistics = new ArrayList<>(periodStarts.length * ROOM_TYPES.length);
+
+        for (Room room : rooms) {
+            if (room != null) {
+                roomsOfType[room.getRoomType().ordinal()]++;
+            }
+        }
+
+        for (int period = 0; period < periodStarts.length; period++) {
+            final int periodEnd = period + 1 < periodStarts.length ? periodStarts[period + 1] : toDay;
+
+            for (RoomType roomType : ROOM_TYPES) {
+                final int index = totals.indexOf(roomType.ordinal(), period);
+
+                statistics.add(new OccupancyStatistics(ReservationDays.dateOf(periodStarts[period]),
+                        ReservationDays.dateOf(periodEnd), roomType,
+                        roomsOfType[roomType.ordinal()] * (periodEnd - periodStarts[period]),
+                        totals.soldNights[index], totals.revenue[index]));
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Sold nights and revenue per room type and period.
+     */
+    private class Totals {
+
+        private final long[] soldNights = new long[ROOM_TYPES.length * periodStarts.length];
+        private final double[] revenue = new double[soldNights.length];
+
+        private int indexOf(final int roomType, final int period) {
+            return roomType * periodStarts.length + period;
+        }
+
+        private void add(final Totals other) {
+            for (int index = 0; index < soldNights.length; index++) {
+                soldNights[index] += other.soldNights[index];
+                revenue[index] += other.revenue[index];
+            }
+        }
+    }
+
+    /**
+     * Counts the nights of the rooms from the first to the last id,
+     * larger partitions are split in half.
+     */
+    private class PartitionTask extends RecursiveTask<Totals> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int firstRoomId;
+        private final int endRoomId;
+
+        private PartitionTask(final int firstRoomId, final int endRoomId) {
+            this.firstRoomId = firstRoomId;
+            this.endRoomId = endRoomId;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (endRoomId - firstRoomId > ROOMS_PER_TASK) {
+                final int middle = (firstRoomId + endRoomId) >>> 1;
+                final PartitionTask second = new PartitionTask(middle, endRoomId);
+
+                second.fork();
+
+                final Totals totals = new PartitionTask(firstRoomId, middle).compute();
+
+                totals.add(second.join());
+                return totals;
+            }
+
+            final Totals totals = new Totals();
+            final boolean[] bookedNights = new boolean[periodOfNight.length];
+            final int[] nightsOfPeriod = new int[periodStarts.length];
+
+            for (int roomId = firstRoomId; roomId < endRoomId; roomId++) {
+                if (rooms[roomId] != null && reservationsOfRooms[roomId] != null) {
+                    countRoom(rooms[roomId], reservationsOfRooms[roomId], bookedNights, nightsOfPeriod, totals);
+                }
+            }
+
+            return totals;
+        }
+
+        private void countRoom(final Room room, final RoomReservations reservations, final boolean[] bookedNights,
+                               final int[] nightsOfPeriod, final Totals totals) {
+            final double price = room.getPrice() != null ? room.getPrice() : 0.0;
+            final int roomType = room.getRoomType().ordinal();
+
+            Arrays.fill(bookedNights, false);
+            Arrays.fill(nightsOfPeriod, 0);
+            reservations.markBookedNights(fromDay, toDay, bookedNights);
+
+            for (int night = 0; night < bookedNights.length; night++) {
+                if (bookedNights[night]) {
+                    nightsOfPeriod[periodOfNight[night]]++;
+                }
+            }
+
+            for (int period = 0; period < nightsOfPeriod.length; period++) {
+                final int index = totals.indexOf(roomType, period);
+
+                totals.soldNights[index] += nightsOfPeriod[period];
+                totals.revenue[index] += nightsOfPeriod[period] * price;
+            }
+        }
+    }
+}
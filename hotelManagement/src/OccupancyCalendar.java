@@ -0,0 +1,281 @@
+import java.util.BitSet;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Stores for every night of the upcoming months a bitset of the occupied
+ * rooms. Rooms are addressed by their index in the reservation service.
+ * A search for whole days inside the window only needs to combine the
+ * bitsets of the wished nights.
+ * Bookings set their bits with atomic operations, only growing the
+ * bitsets for more rooms or moving the window excludes bookings and searches.
+ * The bitsets are a ring: when the window moves to a new day, the bitsets
+ * of the past nights are cleared and reused for the nights which enter the
+ * window. Those nights are only searched after they were filled.
+ * A reservation occupies the nights from the day of its check-in to the
+ * day before the first midnight at or after its check-out, the same nights
+ * as in the index of its room.
+ */
+public class OccupancyCalendar {
+
+    private static final int WINDOW_NIGHTS = 549;
+
+    private final AtomicLongArray[] nights = new AtomicLongArray[WINDOW_NIGHTS];
+    private final ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+    private volatile long firstNight = ReservationDays.today();
+    private volatile long firstNightEnd = ReservationDays.startOf((int) firstNight + 1);
+    private volatile long filledTo = firstNight + WINDOW_NIGHTS;
+    private volatile int words = 1;
+
+    public OccupancyCalendar() {
+        for (int night = 0; night < WINDOW_NIGHTS; night++) {
+            nights[night] = new AtomicLongArray(words);
+        }
+    }
+
+    /**
+     * Marks the nights of a reservation as occupied for the room.
+     * @param roomIndex index of the room
+     * @param checkInDate date of the checkin
+     * @param checkOutDate date of the checkout
+     */
+    public void book(final int roomIndex, final Date checkInDate, final Date checkOutDate) {
+        final long fromDay = firstNightOf(checkInDate);
+        final long toDay = lastNightOf(checkOutDate);
+        final int word = roomIndex >>> 6;
+        final long bit = 1L << roomIndex;
+
+        if (word >= words) {
+            grow(word + 1);
+        }
+
+        resizeLock.readLock().lock();
+        try {
+            final long to = Math.min(toDay, firstNight + WINDOW_NIGHTS);
+
+            // a reservation which doesn't end after its check-in occupies no night
+            for (long night = Math.max(fromDay, firstNight); night < to; night++) {
+                nights[indexOf(night)].getAndUpdate(word, bits -> bits | bit);
+            }
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the nights which are booked for the room as occupied, e.g. to fill the nights
+     * which entered the window. The lock of the room needs to be held.
+     * @param roomIndex index of the room
+     * @param fromDay first night
+     * @param bookedNights nights from the first night on which are booked
+     */
+    public void occupy(final int roomIndex, final long fromDay, final boolean[] bookedNights) {
+        final int word = roomIndex >>> 6;
+        final long bit = 1L << roomIndex;
+
+        if (word >= words) {
+            grow(word + 1);
+        }
+
+        resizeLock.readLock().lock();
+        try {
+            final long to = Math.min(fromDay + bookedNights.length, firstNight + WINDOW_NIGHTS);
+
+            for (long night = Math.max(fromDay, firstNight); night < to; night++) {
+                if (bookedNights[(int) (night - fromDay)]) {
+                    nights[indexOf(night)].getAndUpdate(word, bits -> bits | bit);
+                }
+            }
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the nights of a cancelled reservation as free for the room,
+     * unless another reservation of the room still stays over the night.
+     * @param roomIndex index of the room
+     * @param fromDay first night of the cancelled reservation
+     * @param bookedNights nights from the first night on which are still booked
+     */
+    public void release(final int roomIndex, final int fromDay, final boolean[] bookedNights) {
+        final int word = roomIndex >>> 6;
+        final long bit = 1L << roomIndex;
+
+        if (word >= words) {
+            return;
+        }
+
+        resizeLock.readLock().lock();
+        try {
+            final long to = Math.min((long) fromDay + bookedNights.length, firstNight + WINDOW_NIGHTS);
+
+            for (long night = Math.max(fromDay, firstNight); night < to; night++) {
+                if (!bookedNights[(int) (night - fromDay)]) {
+                    nights[indexOf(night)].getAndUpdate(word, bits -> bits & ~bit);
+                }
+            }
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the first night of the window is already over.
+     * @return true when the window should be moved to today
+     */
+    public boolean isBehind() {
+        return System.currentTimeMillis() >= firstNightEnd;
+    }
+
+    /**
+     * Moves the window to start at the day. The nights before the day are dropped and
+     * the nights which enter the window are empty and not searched until they are filled.
+     * @param day first night of the window
+     * @return first night which entered the window or -1 when the window did not move
+     */
+    public long moveTo(final long day) {
+        resizeLock.writeLock().lock();
+        try {
+            if (day <= firstNight) {
+                return -1;
+            }
+
+            final long firstNewNight = Math.max(firstNight + WINDOW_NIGHTS, day);
+
+            for (long night = firstNewNight; night < day + WINDOW_NIGHTS; night++) {
+                nights[indexOf(night)] = new AtomicLongArray(words);
+            }
+
+            filledTo = Math.min(filledTo, firstNewNight);
+            firstNight = day;
+            firstNightEnd = ReservationDays.startOf((int) day + 1);
+            return firstNewNight;
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the night after the last night of the window.
+     * @return first night which is not stored
+     */
+    public long getEndNight() {
+        return firstNight + WINDOW_NIGHTS;
+    }
+
+    /**
+     * Lets searches use the nights which entered the window, after every room was filled.
+     * @param toNight night after the last filled night
+     */
+    public void markFilled(final long toNight) {
+        filledTo = Math.min(toNight, firstNight + WINDOW_NIGHTS);
+    }
+
+    /**
+     * Makes the bitsets of all nights big enough for the number of words.
+     * @param minWords words which are needed
+     */
+    private void grow(final int minWords) {
+        resizeLock.writeLock().lock();
+        try {
+            if (minWords <= words) {
+                return;
+            }
+
+            final int newWords = Math.max(minWords, words * 2);
+
+            for (int night = 0; night < WINDOW_NIGHTS; night++) {
+                final AtomicLongArray bits = new AtomicLongArray(newWords);
+
+                for (int word = 0; word < words; word++) {
+                    bits.set(word, nights[night].get(word));
+                }
+                nights[night] = bits;
+            }
+            words = newWords;
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the calendar can answer a search for these dates.
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @return true when both dates are whole days inside the window
+     */
+    public boolean covers(final Date checkInDate, final Date checkOutDate) {
+        if (!isStartOfDay(checkInDate) || !isStartOfDay(checkOutDate)) {
+            return false;
+        }
+
+        final long from = firstNightOf(checkInDate);
+        final long to = firstNightOf(checkOutDate);
+
+        return from >= firstNight && from < to && to <= filledTo;
+    }
+
+    /**
+     * Gets the rooms of an index range which are occupied in one of the nights between the dates.
+     * The dates need to be covered by the calendar.
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @param fromIndex first index of the rooms, a multiple of 64
+     * @param toIndex index after the last room
+     * @return bitset with the occupied rooms, bit 0 is the room at the first index,
+     *         or null when the window moved past the check-in in the meantime
+     */
+    public BitSet occupiedRooms(final Date checkInDate, final Date checkOutDate,
+                                final int fromIndex, final int toIndex) {
+        if ((fromIndex & 63) != 0) {
+            throw new IllegalArgumentException("The first index is not a multiple of 64");
+        }
+
+        final long to = firstNightOf(checkOutDate);
+
+        resizeLock.readLock().lock();
+        try {
+            if (firstNightOf(checkInDate) < firstNight) {
+                return null;
+            }
+
+            final int fromWord = fromIndex >>> 6;
+            final int toWord = Math.min(words, (toIndex + 63) >>> 6);
+            final long[] occupied = new long[Math.max(0, toWord - fromWord)];
+
+            for (long night = firstNightOf(checkInDate); night < to; night++) {
+                final AtomicLongArray rooms = nights[indexOf(night)];
+
+                for (int word = 0; word < occupied.length; word++) {
+                    occupied[word] |= rooms.get(fromWord + word);
+                }
+            }
+
+            return BitSet.valueOf(occupied);
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    private static int indexOf(final long night) {
+        return Math.floorMod(night, WINDOW_NIGHTS);
+    }
+
+    private long firstNightOf(final Date date) {
+        return ReservationDays.dayOf(date.getTime());
+    }
+
+    /**
+     * Gets the night after the date, a checkout during the day still occupies that night.
+     */
+    private long lastNightOf(final Date date) {
+        return ReservationDays.nextDayOf(date.getTime());
+    }
+
+    private boolean isStartOfDay(final Date date) {
+        return ReservationDays.isStartOfDay(date.getTime());
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Date;
+
+/**
+ * Occupancy and revenue of the rooms of one type in one period of a report.
+ */
+public class OccupancyStatistics {
+
+    private final Date periodStart;
+    private final Date periodEnd;
+    private final RoomType roomType;
+    private final long availableRoomNights;
+    private final long soldRoomNights;
+    private final double revenue;
+
+    public OccupancyStatistics(final Date periodStart, final Date periodEnd, final RoomType roomType,
+                               final long availableRoomNights, final long soldRoomNights, final double revenue) {
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.roomType = roomType;
+        this.availableRoomNights = availableRoomNights;
+        this.soldRoomNights = soldRoomNights;
+        this.revenue = revenue;
+    }
+
+    public Date getPeriodStart() {
+        return this.periodStart;
+    }
+
+    /**
+     * Gets the start of the day after the period.
+     * @return end of the period
+     */
+    public Date getPeriodEnd() {
+        return this.periodEnd;
+    }
+
+    public RoomType getRoomType() {
+        return this.roomType;
+    }
+
+    /**
+     * Gets the nights all rooms of the type could be sold in the period.
+     * @return rooms times nights
+     */
+    public long getAvailableRoomNights() {
+        return this.availableRoomNights;
+    }
+
+    public long getSoldRoomNights() {
+        return this.soldRoomNights;
+    }
+
+    /**
+     * Gets the price of the sold nights at the current room prices.
+     * @return revenue
+     */
+    public double getRevenue() {
+        return this.revenue;
+    }
+
+    /**
+     * Gets the share of the available nights which were sold.
+     * @return occupancy between 0 and 1
+     */
+    public double getOccupancyRate() {
+        return this.availableRoomNights > 0 ? (double) this.soldRoomNights / this.availableRoomNights : 0.0;
+    }
+
+    /**
+     * Gets the average daily rate, the revenue per sold night.
+     * @return ADR
+     */
+    public double getAverageDailyRate() {
+        return this.soldRoomNights > 0 ? this.revenue / this.soldRoomNights : 0.0;
+    }
+
+    /**
+     * Gets the revenue per available room night.
+     * @return RevPAR
+     */
+    public double getRevenuePerAvailableRoom() {
+        return this.availableRoomNights > 0 ? this.revenue / this.availableRoomNights : 0.0;
+    }
+
+    public String toString() {
+        return String.format("%tF - %tF %-6s occupancy %5.1f%% sold %d of %d nights, ADR $%.2f, RevPAR $%.2f",
+                this.periodStart, new Date(this.periodEnd.getTime() - 1), this.roomType, 100 * getOccupancyRate(),
+                this.soldRoomNights, this.availableRoomNights, getAverageDailyRate(), getRevenuePerAvailableRoom());
+    }
+}
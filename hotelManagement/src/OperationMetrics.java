@@ -0,0 +1,69 @@
+
+/**
+ * Counts the calls of one operation and records their latencies.
+ * The call is timed in place, so recording allocates nothing:
+ * <pre>
+ * final long start = System.nanoTime();
+ *
+ * try {
+ *     return service.find(...);
+ * } finally {
+ *     metrics.record(start);
+ * }
+ * </pre>
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public OperationMetrics(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Records a call which started at the time.
+     * @param startNanos of {@link System#nanoTime()} when the call started
+     */
+    public void record(final long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        final long count = histogram.getCount();
+
+        return count == 0 ? 0 : histogram.getTotalNanos() / NANOS_PER_MICRO / count;
+    }
+
+    @Override
+    public double get50thPercentileMicros() {
+        return histogram.getPercentileNanos(0.50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double get99thPercentileMicros() {
+        return histogram.getPercentileNanos(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double get999thPercentileMicros() {
+        return histogram.getPercentileNanos(0.999) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMaxNanos() / NANOS_PER_MICRO;
+    }
+}
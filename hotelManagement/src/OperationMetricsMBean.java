@@ -0,0 +1,17 @@
+/**
+ * Management interface of the metrics of one operation.
+ */
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double get50thPercentileMicros();
+
+    double get99thPercentileMicros();
+
+    double get999thPercentileMicros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,35 @@
+import java.util.List;
+
+/**
+ * One page of a listing. The cursor of the page continues the listing
+ * right after its last item, even when rows are added meanwhile.
+ * @param <T> type of the items
+ */
+public class Page<T> {
+
+    public static final int END = -1;
+
+    private final List<T> items;
+    private final int nextCursor;
+
+    public Page(final List<T> items, final int nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return this.items;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     * @return the cursor or {@link #END} when this is the last page
+     */
+    public int getNextCursor() {
+        return this.nextCursor;
+    }
+
+    public boolean hasNext() {
+        return this.nextCursor != END;
+    }
+}
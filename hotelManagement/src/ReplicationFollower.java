@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the services of this JVM as a read-only copy of a leader. The
+ * records of the leader's journal are received over TCP and replayed on a
+ * single thread in their order, searches are answered from the local copy.
+ * A lost connection is opened again and continues at the applied position.
+ * When the follower can't continue, e.g. because the leader was restarted
+ * and the local copy can't be replaced, it stops and reports why, so its
+ * stale copy is no longer served.
+ */
+public class ReplicationFollower implements ReplicationFollowerMBean, Closeable {
+
+    private static final long RECONNECT_MILLIS = 1000;
+    private static final int HEADER_BYTES = 8;
+
+    private final InetSocketAddress leaderAddress;
+    private final Thread receiver = new Thread(this::receive, "replication-follower");
+    private final ReentrantLock positionLock = new ReentrantLock();
+    private final Condition applied = positionLock.newCondition();
+    private volatile Socket socket;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private volatile String stopReason;
+    private long session;
+    private long appliedPosition = -1;
+    private long leaderPosition = -1;
+    private long caughtUpMillis = System.currentTimeMillis();
+
+    private ReplicationFollower(final InetSocketAddress leaderAddress) {
+        this.leaderAddress = leaderAddress;
+    }
+
+    /**
+     * Starts to follow the leader, the services of this JVM need to be empty.
+     * @param leaderAddress address on which the leader accepts followers
+     * @return the follower which connects in the background
+     */
+    public static ReplicationFollower start(final InetSocketAddress leaderAddress) {
+        final ReplicationFollower follower = new ReplicationFollower(leaderAddress);
+
+        follower.receiver.setDaemon(true);
+        follower.receiver.start();
+        HotelMetrics.getSingleton().register(follower, "ReplicationFollower");
+
+        return follower;
+    }
+
+    /**
+     * Waits until the follower has applied the leader's changes up to the position, e.g. a
+     * position which the leader returned for a booking, so the client reads its own writes.
+     * @param position of the leader
+     * @param timeoutMillis how long it waits at most
+     * @return false when the follower didn't reach the position in time
+     */
+    public boolean awaitPosition(final long position, final long timeoutMillis) {
+        positionLock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+            while (appliedPosition < position) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = applied.awaitNanos(nanos);
+            }
+
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    private void receive() {
+        while (!closed) {
+            try (Socket leader = new Socket(leaderAddress.getAddress(), leaderAddress.getPort())) {
+                socket = leader;
+                leader.setTcpNoDelay(true);
+                receive(leader.getInputStream(), leader.getOutputStream());
+            } catch (IOException ex) {
+                if (!closed) {
+                    System.err.println("Replication from " + leaderAddress + " interrupted: "
+                            + ex.getLocalizedMessage());
+                }
+            } catch (RuntimeException ex) {
+                // a record which can't be applied would leave the copy behind for ever
+                stopReason = ex.getLocalizedMessage() != null ? ex.getLocalizedMessage() : ex.toString();
+                System.err.println("Replication from " + leaderAddress + " stopped: " + stopReason);
+                return;
+            } finally {
+                connected = false;
+            }
+
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void receive(final InputStream leaderInput, final OutputStream leaderOutput) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(leaderInput,
+                ReplicationLeader.CHUNK_BYTES));
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(leaderOutput));
+
+        output.writeInt(ReplicationLeader.MAGIC);
+        output.writeLong(session);
+        output.writeLong(getAppliedPosition());
+        output.flush();
+
+        if (input.readInt() != ReplicationLeader.MAGIC) {
+            throw new IOException("Not a leader");
+        }
+
+        final long leaderSession = input.readLong();
+        final long startPosition = input.readLong();
+        final long snapshotBytes = input.readLong();
+
+        if (snapshotBytes >= 0) {
+            if (getAppliedPosition() >= 0) {
+                throw new IllegalStateException("The leader was restarted, the follower has to be restarted too");
+            }
+            loadSnapshot(input, snapshotBytes);
+        }
+
+        session = leaderSession;
+        connected = true;
+        setPositions(startPosition, startPosition);
+        applyRecords(input, startPosition);
+    }
+
+    private void loadSnapshot(final DataInputStream input, final long snapshotBytes) throws IOException {
+        final Path snapshotFile = Files.createTempFile("hotel-replication", ".snapshot");
+
+        try {
+            try (OutputStream snapshot = Files.newOutputStream(snapshotFile)) {
+                final byte[] chunk = new byte[ReplicationLeader.CHUNK_BYTES];
+                long remaining = snapshotBytes;
+
+                while (remaining > 0) {
+                    final int length = (int) Math.min(chunk.length, remaining);
+
+                    input.readFully(chunk, 0, length);
+                    snapshot.write(chunk, 0, length);
+                    remaining -= length;
+                }
+            }
+
+            ReservationSnapshot.load(snapshotFile);
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    /**
+     * Replays the records of the leader, a record which arrives in two chunks
+     * is kept until it is complete.
+     */
+    private void applyRecords(final DataInputStream input, final long startPosition) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(2 * ReplicationLeader.CHUNK_BYTES);
+        long position = startPosition;
+
+        while (!closed) {
+            final byte type = input.readByte();
+            final long currentLeaderPosition = input.readLong();
+
+            if (type == ReplicationLeader.RECORDS) {
+                final int length = input.readInt();
+
+                if (records.remaining() < length) {
+                    records = ByteBuffer.allocate(records.position() + length).put(records.flip());
+                }
+
+                input.readFully(records.array(), records.position(), length);
+                records.position(records.position() + length).flip();
+
+                final int replayedBytes = ReservationJournal.replay(records);
+
+                if (hasCompleteRecord(records)) {
+                    throw new IllegalStateException("The leader sent a broken record");
+                }
+
+                records.compact();
+                position += replayedBytes;
+            } else if (type != ReplicationLeader.HEARTBEAT) {
+                throw new IOException("Unknown replication message");
+            }
+
+            setPositions(position, currentLeaderPosition);
+        }
+    }
+
+    /**
+     * Checks if the records which could not be replayed contain a whole record, then its checksum is wrong.
+     */
+    private static boolean hasCompleteRecord(final ByteBuffer records) {
+        if (records.remaining() < HEADER_BYTES) {
+            return false;
+        }
+
+        final int length = records.getInt(records.position());
+
+        return length <= 0 || records.remaining() - HEADER_BYTES >= length;
+    }
+
+    private void setPositions(final long position, final long currentLeaderPosition) {
+        positionLock.lock();
+        try {
+            appliedPosition = position;
+            leaderPosition = Math.max(leaderPosition, currentLeaderPosition);
+
+            if (appliedPosition >= leaderPosition) {
+                caughtUpMillis = System.currentTimeMillis();
+            }
+            applied.signalAll();
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Checks if the follower stopped for good, its copy no longer follows the leader.
+     * @return true when it has to be restarted
+     */
+    @Override
+    public boolean isStopped() {
+        return stopReason != null;
+    }
+
+    /**
+     * Gets why the follower stopped.
+     * @return the reason or null while it follows the leader
+     */
+    @Override
+    public String getStopReason() {
+        return this.stopReason;
+    }
+
+    @Override
+    public long getAppliedPosition() {
+        positionLock.lock();
+        try {
+            return this.appliedPosition;
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLeaderPosition() {
+        positionLock.lock();
+        try {
+            return this.leaderPosition;
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the bytes of the leader's journal which are known but not applied yet.
+     * @return the lag in bytes
+     */
+    @Override
+    public long getLagBytes() {
+        positionLock.lock();
+        try {
+            return Math.max(0, leaderPosition - appliedPosition);
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets how long the follower is behind, the time since it had applied everything the leader had sent.
+     * @return the lag in milliseconds, 0 when it is up to date
+     */
+    @Override
+    public long getLagMillis() {
+        positionLock.lock();
+        try {
+            return appliedPosition >= leaderPosition ? 0 : System.currentTimeMillis() - caughtUpMillis;
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    /**
+     * Stops following the leader, the local copy stays as it is.
+     * @throws IOException when the connection can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        receiver.interrupt();
+
+        final Socket leader = socket;
+
+        if (leader != null) {
+            leader.close();
+        }
+    }
+}
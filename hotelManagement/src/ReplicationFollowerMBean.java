@@ -0,0 +1,19 @@
+/**
+ * Management interface of a follower which applies the journal of the leader.
+ */
+public interface ReplicationFollowerMBean {
+
+    boolean isConnected();
+
+    boolean isStopped();
+
+    String getStopReason();
+
+    long getAppliedPosition();
+
+    long getLeaderPosition();
+
+    long getLagBytes();
+
+    long getLagMillis();
+}
@@ -0,0 +1,220 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Streams the journal records of the leader to followers over TCP.
+ * A new follower first gets a snapshot and then all records which were
+ * appended since the snapshot started, the records which are already in
+ * the snapshot are skipped when the follower replays them. A follower which
+ * reconnects continues at its position while the log still keeps it.
+ * Records are only sent when they are on the leader's disk, so a follower
+ * never applies a change which the leader could lose in a crash.
+ * <pre>
+ * follower: MAGIC, session or 0, position or -1
+ * leader:   MAGIC, session, start position, snapshot length or -1, snapshot
+ * leader:   RECORDS, leader position, length, records | HEARTBEAT, leader position
+ * </pre>
+ */
+public class ReplicationLeader implements ReplicationLeaderMBean, Closeable {
+
+    static final int MAGIC = 0x48524550;
+    static final byte RECORDS = 1;
+    static final byte HEARTBEAT = 2;
+    static final int CHUNK_BYTES = 1 << 16;
+    static final long HEARTBEAT_MILLIS = 100;
+
+    private final ReplicationLog log;
+    private final ServerSocket serverSocket;
+    private final long session = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor = new Thread(this::acceptFollowers, "replication-acceptor");
+
+    private ReplicationLeader(final ReplicationLog log, final ServerSocket serverSocket) {
+        this.log = log;
+        this.serverSocket = serverSocket;
+    }
+
+    /**
+     * Starts to copy the records of the journal and to accept followers.
+     * @param address e.g. 127.0.0.1:9090, port 0 picks a free port
+     * @param journal whose records are streamed
+     * @param logBytes number of bytes which are kept for followers which fall behind or reconnect
+     * @return the running leader
+     * @throws IOException when the address can't be bound
+     */
+    public static ReplicationLeader start(final InetSocketAddress address, final ReservationJournal journal,
+                                          final int logBytes) throws IOException {
+        final ReplicationLog log = new ReplicationLog(logBytes);
+        final ReplicationLeader leader = new ReplicationLeader(log, new ServerSocket(address.getPort(),
+                50, address.getAddress()));
+
+        journal.setReplicationLog(log);
+        leader.acceptor.setDaemon(true);
+        leader.acceptor.start();
+        HotelMetrics.getSingleton().register(leader, "ReplicationLeader");
+
+        return leader;
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    /**
+     * Gets the position after the last record, a follower which has applied it
+     * sees every change which the leader had made before, e.g. for read-your-writes.
+     * The record reaches the followers once it was forced to the disk.
+     * @return the position
+     */
+    @Override
+    public long getPosition() {
+        return log.getPosition();
+    }
+
+    @Override
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    private void acceptFollowers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                final Thread sender = new Thread(() -> serve(socket),
+                        "replication-sender-" + socket.getRemoteSocketAddress());
+
+                followers.add(socket);
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Follower could not be accepted: " + ex.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try (socket;
+             DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                     CHUNK_BYTES))) {
+            socket.setTcpNoDelay(true);
+
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a follower");
+            }
+
+            final long followerSession = input.readLong();
+            final long followerPosition = input.readLong();
+
+            output.writeInt(MAGIC);
+            output.writeLong(session);
+
+            if (followerSession == session && followerPosition >= log.getStartPosition()) {
+                output.writeLong(followerPosition);
+                output.writeLong(-1);
+                streamRecords(followerPosition, output);
+            } else {
+                streamRecords(sendSnapshot(output), output);
+            }
+        } catch (IOException ex) {
+            System.err.println("Replication to " + socket.getRemoteSocketAddress() + " stopped: "
+                    + ex.getLocalizedMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    /**
+     * Sends a snapshot which contains at least every change before the returned position.
+     * It is sent when every change in it was forced to the disk of the leader.
+     * @return position from which the records have to follow
+     */
+    private long sendSnapshot(final DataOutputStream output) throws IOException, InterruptedException {
+        final long startPosition = log.getPosition();
+        final Path snapshotFile = Files.createTempFile("hotel-replication", ".snapshot");
+
+        try {
+            ReservationSnapshot.write(snapshotFile);
+
+            final long endPosition = log.getPosition();
+
+            while (!log.awaitCommitted(endPosition, HEARTBEAT_MILLIS)) {
+                if (serverSocket.isClosed()) {
+                    throw new IOException("The leader was closed");
+                }
+            }
+
+            output.writeLong(startPosition);
+            output.writeLong(Files.size(snapshotFile));
+            Files.copy(snapshotFile, output);
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+
+        return startPosition;
+    }
+
+    /**
+     * Sends the records in chunks from the position on, the output is flushed whenever
+     * the follower has got everything, otherwise when its buffer is full.
+     */
+    private void streamRecords(final long startPosition, final DataOutputStream output)
+            throws IOException, InterruptedException {
+        final byte[] chunk = new byte[CHUNK_BYTES];
+        long position = startPosition;
+
+        while (!serverSocket.isClosed()) {
+            final int length = log.read(position, chunk, HEARTBEAT_MILLIS);
+
+            if (length < 0) {
+                throw new IOException("The follower fell behind the replication log");
+            }
+
+            final long leaderPosition = log.getCommittedPosition();
+
+            if (length == 0) {
+                output.writeByte(HEARTBEAT);
+                output.writeLong(leaderPosition);
+            } else {
+                output.writeByte(RECORDS);
+                output.writeLong(leaderPosition);
+                output.writeInt(length);
+                output.write(chunk, 0, length);
+                position += length;
+            }
+
+            if (position == leaderPosition) {
+                output.flush();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting followers and disconnects the connected ones.
+     * @throws IOException when the server socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+
+        for (Socket follower : followers) {
+            follower.close();
+        }
+    }
+}
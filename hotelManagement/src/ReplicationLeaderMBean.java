@@ -0,0 +1,9 @@
+/**
+ * Management interface of the leader which streams the journal to followers.
+ */
+public interface ReplicationLeaderMBean {
+
+    long getPosition();
+
+    int getFollowerCount();
+}
@@ -0,0 +1,160 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the latest journal records in a ring of bytes for the followers.
+ * Positions count all bytes which were ever appended, so a follower can
+ * continue after a reconnect as long as its position is still kept.
+ * Followers only read the bytes up to the committed position, i.e. the
+ * records which the journal has already forced to the disk.
+ */
+public class ReplicationLog {
+
+    private final byte[] bytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private long position;
+    private long committedPosition;
+
+    /**
+     * Creates an empty log.
+     * @param capacity number of bytes which are kept
+     */
+    public ReplicationLog(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The log needs at least one byte");
+        }
+
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Appends the remaining bytes of the source, the oldest bytes are overwritten when the log is full.
+     * @param source e.g. a journal record
+     */
+    public void append(final ByteBuffer source) {
+        lock.lock();
+        try {
+            while (source.hasRemaining()) {
+                final int offset = (int) (position % bytes.length);
+                final int length = Math.min(source.remaining(), bytes.length - offset);
+
+                source.get(bytes, offset, length);
+                position += length;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the followers read the bytes before the position, e.g. after they were forced to the disk.
+     * @param toPosition position after the last committed byte
+     */
+    public void commit(final long toPosition) {
+        lock.lock();
+        try {
+            if (toPosition > committedPosition) {
+                committedPosition = Math.min(toPosition, position);
+                committed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the bytes before the position are committed.
+     * @param toPosition position after the last byte
+     * @param timeoutMillis how long it waits
+     * @return false after the timeout
+     * @throws InterruptedException when the thread is interrupted while it waits
+     */
+    public boolean awaitCommitted(final long toPosition, final long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+            while (committedPosition < toPosition && nanos > 0) {
+                nanos = committed.awaitNanos(nanos);
+            }
+
+            return committedPosition >= toPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the committed bytes from a position on, it waits when there are none yet.
+     * @param from position of the first byte
+     * @param target which gets the bytes
+     * @param timeoutMillis how long it waits for new bytes
+     * @return number of copied bytes, 0 after the timeout or -1 when the position is no longer kept
+     * @throws InterruptedException when the thread is interrupted while it waits
+     */
+    public int read(final long from, final byte[] target, final long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+            while (committedPosition <= from && nanos > 0) {
+                nanos = committed.awaitNanos(nanos);
+            }
+
+            if (from < getStartPosition() || from > committedPosition) {
+                return -1;
+            }
+
+            final int offset = (int) (from % bytes.length);
+            final int length = (int) Math.min(Math.min(committedPosition - from, target.length),
+                    bytes.length - offset);
+
+            System.arraycopy(bytes, offset, target, 0, length);
+            return length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the position after the last appended byte.
+     * @return the position
+     */
+    public long getPosition() {
+        lock.lock();
+        try {
+            return this.position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the position after the last byte which the followers can read.
+     * @return the committed position
+     */
+    public long getCommittedPosition() {
+        lock.lock();
+        try {
+            return this.committedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the position of the oldest byte which is still kept.
+     * @return the position
+     */
+    public long getStartPosition() {
+        lock.lock();
+        try {
+            return Math.max(0, position - bytes.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Length of the periods of a report.
+ */
+public enum ReportPeriod {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * Gets the first day of the period which contains the day,
+     * weeks start on Monday.
+     * @param day since 1970
+     * @return first day of the period since 1970
+     */
+    public int startOf(final int day) {
+        final LocalDate date = LocalDate.ofEpochDay(day);
+
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> (int) date.with(DayOfWeek.MONDAY).toEpochDay();
+            case MONTH -> (int) date.withDayOfMonth(1).toEpochDay();
+        };
+    }
+}
@@ -15,6 +15,10 @@ public class Reservation {
         this.checkOutDate = checkOutDate;
     }
 
+    public Customer getCustomer() {
+        return this.customer;
+    }
+
     public Room getRoom() {
         return this.room;
     }
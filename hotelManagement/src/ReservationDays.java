@@ -0,0 +1,79 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Converts between points in time and days of the hotel's time zone.
+ * Days are counted from 1970-01-01, reservations from midnight to midnight
+ * can therefore be stored as two ints.
+ */
+public class ReservationDays {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long MAX_DAY = 36_500_000L;
+
+    private ReservationDays() {}
+
+    /**
+     * Gets the day of a point in time, far away dates are cut to the int range.
+     * @param millis since 1970
+     * @return the day
+     */
+    public static int dayOf(final long millis) {
+        final long offset = ZONE.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        final long day = Math.floorDiv(millis + offset, MILLIS_PER_DAY);
+
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    /**
+     * Gets the first day which starts at or after the point in time,
+     * e.g. the last night a check-out during the day still occupies is the day before.
+     * @param millis since 1970
+     * @return the day
+     */
+    public static int nextDayOf(final long millis) {
+        final int day = dayOf(millis);
+
+        return isStartOfDay(millis) ? day : day + 1;
+    }
+
+    /**
+     * Checks if the point in time is exactly the start of a day.
+     * @param millis since 1970
+     * @return true for midnight
+     */
+    public static boolean isStartOfDay(final long millis) {
+        final long day = dayOf(millis);
+
+        return Math.abs(day) < MAX_DAY && startOf((int) day) == millis;
+    }
+
+    /**
+     * Gets the start of the day.
+     * @param day since 1970
+     * @return millis since 1970
+     */
+    public static long startOf(final int day) {
+        return LocalDate.ofEpochDay(day).atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Gets the start of the day as date.
+     * @param day since 1970
+     * @return the date
+     */
+    public static Date dateOf(final int day) {
+        return new Date(startOf(day));
+    }
+
+    /**
+     * Gets the current day.
+     * @return today
+     */
+    public static int today() {
+        return dayOf(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * A change of the customers or reservations as it is passed to the
+ * subscribers of the {@link ReservationFeed}. The events are the slots of
+ * the ring buffer and are reused once all subscribers have seen them, so a
+ * subscriber copies what it needs instead of keeping the event.
+ */
+public class ReservationEvent {
+
+    private long sequence;
+    private ReservationEventType type;
+    private int reservationId;
+    private int previousReservationId;
+    private Customer customer;
+    private Reservation reservation;
+
+    void set(final long sequence, final ReservationEventType type, final int reservationId,
+             final int previousReservationId, final Customer customer, final Reservation reservation) {
+        this.sequence = sequence;
+        this.type = type;
+        this.reservationId = reservationId;
+        this.previousReservationId = previousReservationId;
+        this.customer = customer;
+        this.reservation = reservation;
+    }
+
+    /**
+     * Gets the position of the event in the feed, it grows by one with every event.
+     * @return the sequence
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public ReservationEventType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the id of the booked, cancelled or changed reservation.
+     * @return the id or -1 for a new customer
+     */
+    public int getReservationId() {
+        return this.reservationId;
+    }
+
+    /**
+     * Gets the id which a changed reservation had before.
+     * @return the previous id or -1 when the reservation was not changed
+     */
+    public int getPreviousReservationId() {
+        return this.previousReservationId;
+    }
+
+    public Customer getCustomer() {
+        return this.customer;
+    }
+
+    /**
+     * Gets the reservation, for a changed reservation with its new room and dates.
+     * @return the reservation or null for a new customer
+     */
+    public Reservation getReservation() {
+        return this.reservation;
+    }
+}
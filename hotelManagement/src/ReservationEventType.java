@@ -0,0 +1,21 @@
+/**
+ * Defines which change a {@link ReservationEvent} reports.
+ */
+public enum ReservationEventType {
+    /**
+     * A customer created an account.
+     */
+    CUSTOMER_CREATED,
+    /**
+     * A room was booked, a group booking reports every room.
+     */
+    RESERVED,
+    /**
+     * A reservation was cancelled.
+     */
+    CANCELLED,
+    /**
+     * A reservation was changed, it got a new id and the previous one is cancelled.
+     */
+    MODIFIED
+}
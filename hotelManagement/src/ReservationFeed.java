@@ -0,0 +1,283 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes new customers and booked, cancelled and changed reservations
+ * to subscribers like housekeeping or billing. The events are written into
+ * a ring buffer of pre-allocated slots without locks: a publisher claims the
+ * next sequence with an atomic increment, fills the slot and marks it with
+ * the round of the sequence. Every subscriber reads the slots on its own
+ * thread at its own pace and takes all published events up to its batch size
+ * at once. A publisher only waits when the slot it claimed wasn't seen by the
+ * slowest subscriber yet, without subscribers publishing does nothing.
+ */
+public class ReservationFeed implements ReservationFeedMBean {
+
+    private static final ReservationFeed SINGLETON =
+            new ReservationFeed(Integer.getInteger("hotel.feedCapacity", 1 << 14));
+    private static final int IDLE_YIELDS = 100;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long FULL_PARK_NANOS = 1_000;
+
+    private final ReservationEvent[] events;
+    private final AtomicIntegerArray rounds;
+    private final int mask;
+    private final int roundShift;
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    private final LongAdder fullWaits = new LongAdder();
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /**
+     * Creates a feed with pre-allocated events.
+     * @param capacity number of events which subscribers can lag behind, a power of two
+     */
+    public ReservationFeed(final int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity is not a power of two");
+        }
+
+        this.events = new ReservationEvent[capacity];
+        this.rounds = new AtomicIntegerArray(capacity);
+        this.mask = capacity - 1;
+        this.roundShift = Integer.numberOfTrailingZeros(capacity);
+
+        for (int index = 0; index < capacity; index++) {
+            events[index] = new ReservationEvent();
+            rounds.set(index, -1);
+        }
+    }
+
+    static {
+        HotelMetrics.getSingleton().register(SINGLETON, "ReservationFeed");
+    }
+
+    public static ReservationFeed getSingleton() {
+        return SINGLETON;
+    }
+
+    /**
+     * Checks if someone gets the events, e.g. before an event is prepared which needs allocations.
+     * @return true when there is a subscriber
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    /**
+     * Publishes a new customer.
+     * @param customer which was created
+     */
+    public void publishCustomer(final Customer customer) {
+        publish(ReservationEventType.CUSTOMER_CREATED, -1, -1, customer, null);
+    }
+
+    /**
+     * Publishes a change of a reservation.
+     * @param type of the change
+     * @param reservationId id of the reservation
+     * @param previousReservationId id of a changed reservation before the change, otherwise -1
+     * @param reservation which was booked, cancelled or changed
+     */
+    public void publishReservation(final ReservationEventType type, final int reservationId,
+                                   final int previousReservationId, final Reservation reservation) {
+        publish(type, reservationId, previousReservationId, reservation.getCustomer(), reservation);
+    }
+
+    private void publish(final ReservationEventType type, final int reservationId, final int previousReservationId,
+                         final Customer customer, final Reservation reservation) {
+        if (!hasSubscribers()) {
+            return;
+        }
+
+        final long sequence = claimedSequence.incrementAndGet();
+        final int index = (int) sequence & mask;
+
+        awaitSlot(sequence);
+        events[index].set(sequence, type, reservationId, previousReservationId, customer, reservation);
+        rounds.lazySet(index, (int) (sequence >>> roundShift));
+    }
+
+    /**
+     * Waits until every subscriber has seen the event which was in the slot of the sequence before.
+     */
+    private void awaitSlot(final long sequence) {
+        final long previousSequence = sequence - events.length;
+
+        if (previousSequence < 0 || previousSequence <= slowestSequence(sequence)) {
+            return;
+        }
+
+        fullWaits.increment();
+
+        do {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        } while (previousSequence > slowestSequence(sequence));
+    }
+
+    /**
+     * Gets the last sequence which all subscribers have seen.
+     * @param sequence which is returned when there is no subscriber
+     */
+    private long slowestSequence(final long sequence) {
+        long slowestSequence = sequence;
+
+        for (Subscription subscription : subscriptions) {
+            slowestSequence = Math.min(slowestSequence, subscription.sequence.get());
+        }
+
+        return slowestSequence;
+    }
+
+    /**
+     * Starts a thread which passes all following events to the subscriber.
+     * @param name of the subscriber, e.g. housekeeping
+     * @param maxBatch number of events which are passed at most before the subscriber's position is updated
+     * @param subscriber which gets the events
+     * @return the subscription which stops the thread when it is closed
+     */
+    public synchronized Subscription subscribe(final String name, final int maxBatch, final Subscriber subscriber) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("A batch needs at least one event");
+        }
+
+        final Subscription subscription = new Subscription(name, maxBatch, subscriber);
+        final Subscription[] newSubscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+
+        // the subscriber starts behind the events which are already claimed
+        subscription.sequence.set(claimedSequence.get());
+        newSubscriptions[subscriptions.length] = subscription;
+        subscriptions = newSubscriptions;
+        subscription.thread.start();
+
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(final Subscription subscription) {
+        subscriptions = Arrays.stream(subscriptions).filter(other -> other != subscription)
+                .toArray(Subscription[]::new);
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.events.length;
+    }
+
+    @Override
+    public long getPublishedCount() {
+        return claimedSequence.get() + 1;
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    @Override
+    public long getMaxLag() {
+        final long claimed = claimedSequence.get();
+
+        return claimed - slowestSequence(claimed);
+    }
+
+    @Override
+    public long getFullWaitCount() {
+        return fullWaits.sum();
+    }
+
+    /**
+     * Gets the events of a feed.
+     */
+    public interface Subscriber {
+        /**
+         * Handles an event, the event must not be kept after the call.
+         * @param event which was published
+         * @param endOfBatch true when it is the last event which was available
+         */
+        void onEvent(ReservationEvent event, boolean endOfBatch);
+    }
+
+    /**
+     * The thread and the position of a subscriber.
+     */
+    public class Subscription implements AutoCloseable {
+
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final int maxBatch;
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Subscription(final String name, final int maxBatch, final Subscriber subscriber) {
+            this.maxBatch = maxBatch;
+            this.subscriber = subscriber;
+            this.thread = new Thread(this::consume, "reservation-feed-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Gets the sequence of the last event which the subscriber has handled.
+         * @return the sequence or -1 before the first event
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        private void consume() {
+            int idleRounds = 0;
+
+            while (running) {
+                final long nextSequence = sequence.get() + 1;
+                final long lastSequence = lastPublishedSequence(nextSequence);
+
+                if (lastSequence < nextSequence) {
+                    if (idleRounds++ < IDLE_YIELDS) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+
+                idleRounds = 0;
+
+                for (long next = nextSequence; next <= lastSequence; next++) {
+                    try {
+                        subscriber.onEvent(events[(int) next & mask], next == lastSequence);
+                    } catch (RuntimeException ex) {
+                        System.err.println("Subscriber " + thread.getName() + " failed: " + ex.getLocalizedMessage());
+                    }
+                }
+
+                sequence.lazySet(lastSequence);
+            }
+        }
+
+        /**
+         * Gets the last sequence from the next one on which is published without a gap, at most a batch.
+         */
+        private long lastPublishedSequence(final long nextSequence) {
+            final long lastSequence = Math.min(claimedSequence.get(), nextSequence + maxBatch - 1);
+
+            for (long next = nextSequence; next <= lastSequence; next++) {
+                if (rounds.get((int) next & mask) != (int) (next >>> roundShift)) {
+                    return next - 1;
+                }
+            }
+
+            return lastSequence;
+        }
+
+        /**
+         * Stops the subscriber after the batch it is handling, publishers no longer wait for it.
+         */
+        @Override
+        public void close() {
+            running = false;
+            unsubscribe(this);
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Management interface of the statistics of the reservation feed.
+ */
+public interface ReservationFeedMBean {
+
+    int getCapacity();
+
+    long getPublishedCount();
+
+    int getSubscriberCount();
+
+    long getMaxLag();
+
+    long getFullWaitCount();
+}
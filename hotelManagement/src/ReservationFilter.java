@@ -0,0 +1,58 @@
+import java.util.Date;
+
+/**
+ * Selects reservations for a listing, every criteria which is null matches all reservations.
+ */
+public class ReservationFilter {
+
+    public static final ReservationFilter ALL = new ReservationFilter(null, null, null, null);
+
+    private final Date fromDate;
+    private final Date toDate;
+    private final RoomType roomType;
+    private final String customerEmail;
+
+    /**
+     * Creates a filter.
+     * @param fromDate reservations which check out after this date
+     * @param toDate reservations which check in before this date
+     * @param roomType reservations of rooms of this type
+     * @param customerEmail reservations of this customer
+     */
+    public ReservationFilter(final Date fromDate, final Date toDate, final RoomType roomType,
+                             final String customerEmail) {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.roomType = roomType;
+        this.customerEmail = customerEmail;
+    }
+
+    public Date getFromDate() {
+        return this.fromDate;
+    }
+
+    public Date getToDate() {
+        return this.toDate;
+    }
+
+    public RoomType getRoomType() {
+        return this.roomType;
+    }
+
+    public String getCustomerEmail() {
+        return this.customerEmail;
+    }
+
+    /**
+     * Checks the stay and the room of a reservation.
+     * @param room of the reservation
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return true when they match
+     */
+    public boolean matches(final Room room, final long checkIn, final long checkOut) {
+        return (fromDate == null || checkOut > fromDate.getTime())
+                && (toDate == null || checkIn < toDate.getTime())
+                && (roomType == null || room.getRoomType() == roomType);
+    }
+}
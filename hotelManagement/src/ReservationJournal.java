@@ -0,0 +1,633 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of all changes to rooms, customers and reservations.
+ * Every record is written as its length, a checksum and the payload.
+ * Changes are collected in a buffer and a background thread writes and
+ * forces them to the disk, so many calls share one fsync.
+ */
+public class ReservationJournal implements Closeable {
+
+    private static final byte ROOM_RECORD = 1;
+    private static final byte CUSTOMER_RECORD = 2;
+    private static final byte RESERVATION_RECORD = 3;
+    private static final byte GROUP_RECORD = 4;
+    private static final byte CANCEL_RECORD = 5;
+    private static final byte MODIFY_RECORD = 6;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+    private static final long MAX_MAPPED_BYTES = 1 << 30;
+
+    private final JournalDurability durability;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32 checksum = new CRC32();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushNeeded = flushLock.newCondition();
+    private final Condition flushDone = flushLock.newCondition();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Thread flusher = new Thread(this::runFlusher, "journal-flusher");
+    private volatile ReplicationLog replicationLog;
+
+    private FileChannel channel;
+    private long writtenPosition;
+    private long requestedPosition;
+    private long flushedPosition;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens the journal for appending after the last valid record.
+     * @param file of the journal
+     * @param durability when changes are forced to the disk
+     * @param validBytes length of the valid records, everything behind it is cut off
+     * @throws IOException when the file can't be opened
+     */
+    public ReservationJournal(final Path file, final JournalDurability durability,
+                              final long validBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.durability = durability;
+
+        channel.truncate(validBytes);
+        channel.position(validBytes);
+        writtenPosition = validBytes;
+        requestedPosition = validBytes;
+        flushedPosition = validBytes;
+
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Replays all valid records of the journal into the services.
+     * A torn record at the end, e.g. after a crash, ends the replay.
+     * @param file of the journal
+     * @return length of the valid records
+     * @throws IOException when the file can't be read
+     */
+    public static long replay(final Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                final MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, MAX_MAPPED_BYTES));
+                final int replayedBytes = replay(records);
+
+                if (replayedBytes == 0) {
+                    break;
+                }
+                position += replayedBytes;
+            }
+
+            return position;
+        }
+    }
+
+    /**
+     * Replays the complete records of the buffer from its position on,
+     * e.g. the records which a follower got from the leader.
+     * Consecutive rooms are added together, so the price index is copied once for them,
+     * and so are consecutive reservations, so every room merges them into its index once.
+     * @param records with their lengths and checksums
+     * @return position after the last record which was replayed
+     */
+    public static int replay(final ByteBuffer records) {
+        final CRC32 checksum = new CRC32();
+        final List<Room> rooms = new ArrayList<>();
+        final RestoredReservations reservations = new RestoredReservations();
+
+        while (records.remaining() >= HEADER_BYTES) {
+            final int start = records.position();
+            final int length = records.getInt(start);
+
+            if (length <= 0 || records.remaining() - HEADER_BYTES < length) {
+                break;
+            }
+
+            final ByteBuffer record = records.slice(start + HEADER_BYTES, length);
+
+            checksum.reset();
+            checksum.update(record.duplicate());
+
+            if ((int) checksum.getValue() != records.getInt(start + 4)) {
+                break;
+            }
+
+            if (record.get(0) == ROOM_RECORD) {
+                reservations.restore();
+                rooms.add(readRoom(record.position(1)));
+            } else if (record.get(0) == RESERVATION_RECORD || record.get(0) == GROUP_RECORD) {
+                addRooms(rooms);
+                reservations.add(record);
+            } else {
+                addRooms(rooms);
+                reservations.restore();
+                apply(record);
+            }
+
+            records.position(start + HEADER_BYTES + length);
+        }
+
+        addRooms(rooms);
+        reservations.restore();
+        return records.position();
+    }
+
+    private static void addRooms(final List<Room> rooms) {
+        if (!rooms.isEmpty()) {
+            ReservationService.getSingleton().addRooms(rooms);
+            rooms.clear();
+        }
+    }
+
+    /**
+     * Applies a single record to the services.
+     * @param record payload of the record
+     */
+    public static void apply(final ByteBuffer record) {
+        final CustomerService customerService = CustomerService.getSingleton();
+        final ReservationService reservationService = ReservationService.getSingleton();
+
+        switch (record.get()) {
+            case ROOM_RECORD -> reservationService.addRoom(readRoom(record));
+            case CUSTOMER_RECORD -> {
+                final String email = readString(record);
+                final String firstName = readString(record);
+                final String lastName = readString(record);
+
+                customerService.addCustomer(email, firstName, lastName);
+            }
+            case RESERVATION_RECORD -> applyReservation(record.getInt(), record);
+            case GROUP_RECORD -> {
+                final int firstId = record.getInt();
+                final int count = record.getInt();
+
+                for (int index = 0; index < count; index++) {
+                    applyReservation(firstId + index, record);
+                }
+            }
+            case CANCEL_RECORD -> reservationService.restoreCancellation(record.getInt());
+            case MODIFY_RECORD -> {
+                reservationService.restoreCancellation(record.getInt());
+                applyReservation(record.getInt(), record);
+            }
+            default -> throw new IllegalStateException("Unknown journal record");
+        }
+    }
+
+    private static void applyReservation(final int id, final ByteBuffer record) {
+        final Reservation reservation = readReservation(record);
+
+        ReservationService.getSingleton().restoreReservation(id, reservation.getCustomer(), reservation.getRoom(),
+                reservation.getCheckInDate(), reservation.getCheckOutDate());
+    }
+
+    private static Reservation readReservation(final ByteBuffer record) {
+        final Customer customer = CustomerService.getSingleton().getCustomer(readString(record));
+        final Room room = readRoom(record);
+        final Room addedRoom = ReservationService.getSingleton().getARoom(room.getRoomNumber());
+        final Date checkInDate = new Date(record.getLong());
+        final Date checkOutDate = new Date(record.getLong());
+
+        return new Reservation(customer, addedRoom != null ? addedRoom : room, checkInDate, checkOutDate);
+    }
+
+    /**
+     * Copies every following record to the log, so followers get them in the order of the journal.
+     * The records are committed in the log when they were forced to the disk.
+     * @param replicationLog which the followers read or null to stop copying
+     */
+    public void setReplicationLog(final ReplicationLog replicationLog) {
+        this.replicationLog = replicationLog;
+    }
+
+    /**
+     * Writes a new or changed room to the journal.
+     * @param room which was added
+     * @return position which has to be committed
+     */
+    public long recordRoom(final Room room) {
+        final byte[] roomNumber = toBytes(room.getRoomNumber());
+
+        return append(ROOM_RECORD, sizeOf(roomNumber) + Double.BYTES + 1,
+                record -> writeRoom(record, roomNumber, room));
+    }
+
+    /**
+     * Writes a new customer to the journal.
+     * @param customer which was created
+     * @return position which has to be committed
+     */
+    public long recordCustomer(final Customer customer) {
+        final byte[] email = toBytes(customer.getEmail());
+        final byte[] firstName = toBytes(customer.getFirstName());
+        final byte[] lastName = toBytes(customer.getLastName());
+
+        return append(CUSTOMER_RECORD, sizeOf(email) + sizeOf(firstName) + sizeOf(lastName), record -> {
+            record.putInt(email.length).put(email);
+            record.putInt(firstName.length).put(firstName);
+            record.putInt(lastName.length).put(lastName);
+        });
+    }
+
+    /**
+     * Writes a new reservation to the journal.
+     * @param id of the reservation
+     * @param reservation which was booked
+     * @return position which has to be committed
+     */
+    public long recordReservation(final int id, final Reservation reservation) {
+        final byte[] email = toBytes(reservation.getCustomer().getEmail());
+        final byte[] roomNumber = toBytes(reservation.getRoom().getRoomNumber());
+
+        return append(RESERVATION_RECORD,
+                Integer.BYTES + sizeOf(email) + sizeOf(roomNumber) + Double.BYTES + 1 + 2 * Long.BYTES, record -> {
+            record.putInt(id);
+            record.putInt(email.length).put(email);
+            writeRoom(record, roomNumber, reservation.getRoom());
+            record.putLong(reservation.getCheckInDate().getTime());
+            record.putLong(reservation.getCheckOutDate().getTime());
+        });
+    }
+
+    /**
+     * Writes the reservations of a group booking as a single record,
+     * so that a replay restores either all or none of them.
+     * @param firstId id of the first reservation, the others follow without gaps
+     * @param reservations which were booked together
+     * @return position which has to be committed
+     */
+    public long recordReservations(final int firstId, final List<Reservation> reservations) {
+        final byte[][] emails = new byte[reservations.size()][];
+        final byte[][] roomNumbers = new byte[reservations.size()][];
+        int payloadBytes = 2 * Integer.BYTES;
+
+        for (int index = 0; index < emails.length; index++) {
+            emails[index] = toBytes(reservations.get(index).getCustomer().getEmail());
+            roomNumbers[index] = toBytes(reservations.get(index).getRoom().getRoomNumber());
+            payloadBytes += sizeOf(emails[index]) + sizeOf(roomNumbers[index]) + Double.BYTES + 1 + 2 * Long.BYTES;
+        }
+
+        return append(GROUP_RECORD, payloadBytes, record -> {
+            record.putInt(firstId);
+            record.putInt(emails.length);
+
+            for (int index = 0; index < emails.length; index++) {
+                final Reservation reservation = reservations.get(index);
+
+                record.putInt(emails[index].length).put(emails[index]);
+                writeRoom(record, roomNumbers[index], reservation.getRoom());
+                record.putLong(reservation.getCheckInDate().getTime());
+                record.putLong(reservation.getCheckOutDate().getTime());
+            }
+        });
+    }
+
+    /**
+     * Writes the cancellation of a reservation to the journal.
+     * @param id of the cancelled reservation
+     * @return position which has to be committed
+     */
+    public long recordCancellation(final int id) {
+        return append(CANCEL_RECORD, Integer.BYTES, record -> record.putInt(id));
+    }
+
+    /**
+     * Writes a changed reservation as the cancellation of the previous one
+     * and the new reservation in a single record.
+     * @param cancelledId id of the previous reservation
+     * @param id of the new reservation
+     * @param reservation with the new room and dates
+     * @return position which has to be committed
+     */
+    public long recordModification(final int cancelledId, final int id, final Reservation reservation) {
+        final byte[] email = toBytes(reservation.getCustomer().getEmail());
+        final byte[] roomNumber = toBytes(reservation.getRoom().getRoomNumber());
+
+        return append(MODIFY_RECORD,
+                2 * Integer.BYTES + sizeOf(email) + sizeOf(roomNumber) + Double.BYTES + 1 + 2 * Long.BYTES, record -> {
+            record.putInt(cancelledId);
+            record.putInt(id);
+            record.putInt(email.length).put(email);
+            writeRoom(record, roomNumber, reservation.getRoom());
+            record.putLong(reservation.getCheckInDate().getTime());
+            record.putLong(reservation.getCheckOutDate().getTime());
+        });
+    }
+
+    /**
+     * Waits until the record at the position is on the disk,
+     * in batched mode it returns immediately.
+     * @param position returned when the change was recorded
+     */
+    public void commit(final long position) {
+        if (durability == JournalDurability.BATCHED) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            requestedPosition = Math.max(requestedPosition, position);
+            flushNeeded.signal();
+
+            while (flushedPosition < position) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal could not be written", failure);
+                }
+                flushDone.awaitUninterruptibly();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Continues the journal in a new file, e.g. when a snapshot was started.
+     * All records in the previous file are on the disk when this returns.
+     * @param file which gets the following records
+     * @throws IOException when the new file can't be opened
+     */
+    public void roll(final Path file) throws IOException {
+        final FileChannel nextChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        final FileChannel previousChannel;
+
+        // a flush which already writes to the next file waits until the previous file is forced
+        forceLock.lock();
+        try {
+            synchronized (this) {
+                writeBuffer();
+                previousChannel = channel;
+                channel = nextChannel;
+            }
+
+            previousChannel.force(false);
+            previousChannel.close();
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the remaining changes to the disk and closes the journal.
+     * @throws IOException when the changes can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        flushLock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            flushLock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a record, after a failed write every further record fails as well,
+     * so a change which throws is neither in the journal nor in the services.
+     */
+    private synchronized long append(final byte type, final int payloadBytes, final Consumer<ByteBuffer> writer) {
+        final int length = 1 + payloadBytes;
+        final int recordBytes = HEADER_BYTES + length;
+
+        if (failure != null) {
+            throw new UncheckedIOException("Journal could not be written", failure);
+        }
+
+        if (recordBytes > buffer.remaining()) {
+            writeBuffer();
+        }
+
+        final ByteBuffer target = recordBytes <= buffer.remaining() ? buffer : ByteBuffer.allocate(recordBytes);
+        final int start = target.position();
+
+        target.position(start + HEADER_BYTES);
+        target.put(type);
+        writer.accept(target);
+
+        checksum.reset();
+        checksum.update(target.duplicate().position(start + HEADER_BYTES).limit(target.position()));
+        target.putInt(start, length);
+        target.putInt(start + 4, (int) checksum.getValue());
+
+        if (target != buffer) {
+            target.flip();
+            writeFully(target);
+        }
+
+        if (replicationLog != null) {
+            replicationLog.append(target.duplicate().position(start).limit(start + recordBytes));
+        }
+
+        writtenPosition += recordBytes;
+        return writtenPosition;
+    }
+
+    private void runFlusher() {
+        while (true) {
+            flushLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (requestedPosition <= flushedPosition) {
+                    flushNeeded.await(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+
+            try {
+                flush();
+            } catch (IOException ex) {
+                flushLock.lock();
+                try {
+                    failure = ex;
+                    flushDone.signalAll();
+                } finally {
+                    flushLock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records and forces everything written so far to the disk,
+     * then the followers may get them.
+     */
+    private void flush() throws IOException {
+        final long position;
+        final FileChannel target;
+        final ReplicationLog log;
+        final long logPosition;
+
+        synchronized (this) {
+            writeBuffer();
+            position = writtenPosition;
+            target = channel;
+            log = replicationLog;
+            logPosition = log != null ? log.getPosition() : 0;
+        }
+
+        final boolean forced;
+
+        flushLock.lock();
+        try {
+            forced = position <= flushedPosition;
+        } finally {
+            flushLock.unlock();
+        }
+
+        if (forced) {
+            commitReplication(log, logPosition);
+            return;
+        }
+
+        forceLock.lock();
+        try {
+            // a closed channel was rolled over and forced completely
+            if (target.isOpen()) {
+                target.force(false);
+            }
+        } finally {
+            forceLock.unlock();
+        }
+
+        flushLock.lock();
+        try {
+            flushedPosition = Math.max(flushedPosition, position);
+            flushDone.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+
+        commitReplication(log, logPosition);
+    }
+
+    private static void commitReplication(final ReplicationLog log, final long logPosition) {
+        if (log != null) {
+            log.commit(logPosition);
+        }
+    }
+
+    private synchronized void writeBuffer() {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer source) {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException ex) {
+            failure = ex;
+            throw new UncheckedIOException("Journal could not be written", ex);
+        }
+    }
+
+    private static void writeRoom(final ByteBuffer record, final byte[] roomNumber, final Room room) {
+        record.putInt(roomNumber.length).put(roomNumber);
+        record.putDouble(room.getPrice());
+        record.put((byte) room.getRoomType().ordinal());
+    }
+
+    private static Room readRoom(final ByteBuffer record) {
+        final String roomNumber = readString(record);
+        final double price = record.getDouble();
+        final RoomType roomType = RoomType.values()[record.get()];
+
+        return new Room(roomNumber, price, roomType);
+    }
+
+    private static byte[] toBytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(final byte[] value) {
+        return Integer.BYTES + value.length;
+    }
+
+    private static String readString(final ByteBuffer record) {
+        final byte[] value = new byte[record.getInt()];
+        record.get(value);
+
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reservations with consecutive ids which were read from the journal and are restored together.
+     */
+    private static class RestoredReservations {
+
+        private static final int MAX_RESERVATIONS = 65536;
+
+        private final List<Reservation> reservations = new ArrayList<>();
+        private int firstId;
+
+        /**
+         * Reads the reservations of a reservation or group record.
+         */
+        private void add(final ByteBuffer record) {
+            final boolean group = record.get() == GROUP_RECORD;
+            final int id = record.getInt();
+            final int count = group ? record.getInt() : 1;
+
+            if (id != firstId + reservations.size() || reservations.size() >= MAX_RESERVATIONS) {
+                restore();
+                firstId = id;
+            }
+
+            for (int index = 0; index < count; index++) {
+                reservations.add(readReservation(record));
+            }
+        }
+
+        private void restore() {
+            if (!reservations.isEmpty()) {
+                ReservationService.getSingleton().restoreReservations(firstId, reservations);
+                reservations.clear();
+            }
+        }
+    }
+}
@@ -1,61 +1,856 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class ReservationService {
 
+    // read before the singleton is created, it needs it
+    private static final int ROOMS_PER_SHARD = Integer.getInteger("hotel.roomsPerShard", 1024);
     private static final ReservationService SINGLETON = new ReservationService();
     private static final int RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS = 7;
+    private static final int ALTERNATIVE_DAYS_BEFORE = 14;
+    private static final int ALTERNATIVE_DAYS_AFTER = 28;
+    private static final int ROOM_LOCK_STRIPES = 256;
+    private static final int AVAILABILITY_CACHE_RANGES = 1024;
 
-    private final Map<String, Room> rooms = new HashMap<>();
-    private final Map<String, Collection<Reservation>> reservations = new HashMap<>();
+    private final CustomerService customerService = CustomerService.getSingleton();
+    private final IdDictionary<Room> rooms = new IdDictionary<>();
+    private final ReservationStore store = new ReservationStore();
+    private final IdArray<IntList> reservations = new IdArray<>();
+    private final IdArray<RoomReservations> roomReservations = new IdArray<>();
+    private final Map<Integer, Room> unlistedRooms = new ConcurrentHashMap<>();
+    private final Map<Integer, Customer> unlistedCustomers = new ConcurrentHashMap<>();
+    private final StripedLocks roomLocks = new StripedLocks(ROOM_LOCK_STRIPES);
+    private final ReservationShards shards = new ReservationShards(ROOMS_PER_SHARD, AVAILABILITY_CACHE_RANGES);
+    private final RoomPriceIndex priceIndex = new RoomPriceIndex();
+    private final DailyReservations dailyReservations = new DailyReservations(store);
+    private final ReservationFeed feed = ReservationFeed.getSingleton();
+    private final Set<Integer> roomsToCompact = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> customersToCompact = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "reservation-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ReservationJournal journal;
 
-    private ReservationService() {}
+    private ReservationService() {
+        HotelMetrics.getSingleton().register(shards, "AvailabilityCache");
+    }
 
     public static ReservationService getSingleton() {
         return SINGLETON;
     }
 
+    /**
+     * Sets the journal which records all further changes.
+     * @param journal or null to stop recording
+     */
+    public void setJournal(final ReservationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Adds a room. It is recorded in the journal before it can be found,
+     * so a booking of the room always follows the room in the journal.
+     * @param room which is added
+     */
     public void addRoom(final Room room) {
-        rooms.put(room.getRoomNumber(), room);
+        final ReservationJournal journal = this.journal;
+        final long journalPosition = journal != null ? journal.recordRoom(room) : 0;
+        final int roomId = rooms.put(room.getRoomNumber(), room);
+
+        priceIndex.add(roomId, room);
+        invalidateRoom(roomId);
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+    }
+
+    /**
+     * Adds many rooms at once, the journal is committed once for all of them.
+     * All of them are recorded before the first one can be found.
+     * @param newRooms which are added
+     */
+    public void addRooms(final Collection<Room> newRooms) {
+        final ReservationJournal journal = this.journal;
+        final Room[] addedRooms = newRooms.toArray(new Room[0]);
+        final int[] roomIds = new int[addedRooms.length];
+        long journalPosition = 0;
+
+        if (journal != null) {
+            for (Room room : addedRooms) {
+                journalPosition = journal.recordRoom(room);
+            }
+        }
+
+        for (int index = 0; index < addedRooms.length; index++) {
+            roomIds[index] = rooms.put(addedRooms[index].getRoomNumber(), addedRooms[index]);
+            invalidateRoom(roomIds[index]);
+        }
+
+        priceIndex.addAll(roomIds, addedRooms);
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+    }
+
+    /**
+     * Removes the cached searches in which the room was or is available now.
+     */
+    private void invalidateRoom(final int roomId) {
+        shards.invalidateRoom(roomId, (checkIn, checkOut) -> !isRoomBooked(roomId, checkIn, checkOut));
+    }
+
+    public AvailabilityCacheMBean getAvailabilityCache() {
+        return this.shards;
     }
 
     public Room getARoom(final String roomNumber) {
         return rooms.get(roomNumber);
     }
 
+    public int getRoomCount() {
+        return rooms.getValueCount();
+    }
+
     public Collection<Room> getAllRooms() {
-        return rooms.values();
+        final int size = rooms.size();
+        final List<Room> allRooms = new ArrayList<>(size);
+
+        for (int roomId = 0; roomId < size; roomId++) {
+            final Room room = rooms.get(roomId);
+
+            if (room != null) {
+                allRooms.add(room);
+            }
+        }
+
+        return allRooms;
     }
 
     /**
      * Reserves the room and add its to the reservations of the hotel.
+     * A booking which overlaps with another reservation of the room is rejected,
+     * it is the same as {@link #reserveARoomIfAvailable}.
      * @param customer which books the room
      * @param room which the customer wants to book
      * @param checkInDate date of the checkin
      * @param checkOutDate date of the checkout
-     * @return the reservation
+     * @return the reservation or null when the room is already booked
+     * @throws IllegalArgumentException when the check-out is not after the check-in
      */
     public Reservation reserveARoom(final Customer customer, final Room room,
                                     final Date checkInDate, final Date checkOutDate) {
+        return reserveARoomIfAvailable(customer, room, checkInDate, checkOutDate);
+    }
+
+    /**
+     * Reserves the room only if no other reservation overlaps with the dates.
+     * The check and the booking happen under the lock of the room, so two
+     * customers can't book the same room for the same night.
+     * @param customer which books the room
+     * @param room which the customer wants to book
+     * @param checkInDate date of the checkin
+     * @param checkOutDate date of the checkout
+     * @return the reservation or null when the room is already booked
+     * @throws IllegalArgumentException when the check-out is not after the check-in
+     */
+    public Reservation reserveARoomIfAvailable(final Customer customer, final Room room,
+                                              final Date checkInDate, final Date checkOutDate) {
+        checkStay(checkInDate, checkOutDate);
+
+        final ReservationJournal journal = this.journal;
+        final ReentrantLock lock = roomLocks.lockFor(getRoomId(room));
         final Reservation reservation = new Reservation(customer, room, checkInDate, checkOutDate);
+        final long journalPosition;
 
-        Collection<Reservation> customerReservations = getCustomersReservation(customer);
+        lock.lock();
+        try {
+            if (isRoomBooked(getRoomId(room), checkInDate, checkOutDate)) {
+                return null;
+            }
 
-        if (customerReservations == null) {
-            customerReservations = new LinkedList<>();
+            journalPosition = addReservation(journal, reservation);
+        } finally {
+            lock.unlock();
         }
 
-        customerReservations.add(reservation);
-        reservations.put(customer.getEmail(), customerReservations);
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
 
         return reservation;
     }
 
+    /**
+     * Rejects a stay without nights, e.g. with swapped dates.
+     */
+    private static void checkStay(final Date checkInDate, final Date checkOutDate) {
+        if (!checkInDate.before(checkOutDate)) {
+            throw new IllegalArgumentException("Check-out is not after check-in");
+        }
+    }
+
+    /**
+     * Reserves all rooms of a group or none of them, e.g. for a wedding.
+     * The locks of all rooms are taken in the order of their stripes, so
+     * group bookings can't deadlock each other or single bookings. While
+     * they are held every room is checked against its reservations and
+     * the other rooms of the group, then all reservations get consecutive
+     * ids and are recorded in the journal as one record with one commit.
+     * @param customer which books the rooms
+     * @param bookings rooms with their dates
+     * @return the reservations in the order of the bookings or null when a room is already booked
+     * @throws IllegalArgumentException when a check-out is not after its check-in
+     */
+    public List<Reservation> reserveRoomsIfAvailable(final Customer customer, final List<RoomBooking> bookings) {
+        bookings.forEach(booking -> checkStay(booking.getCheckInDate(), booking.getCheckOutDate()));
+
+        final ReservationJournal journal = this.journal;
+        final int[] roomIds = bookings.stream().mapToInt(booking -> getRoomId(booking.getRoom())).toArray();
+        final int customerId = getCustomerId(customer);
+        final ReentrantLock[] locks = roomLocks.locksFor(roomIds);
+        final List<Reservation> groupReservations = bookings.stream()
+                .map(booking -> new Reservation(customer, booking.getRoom(), booking.getCheckInDate(),
+                        booking.getCheckOutDate()))
+                .collect(Collectors.toList());
+        final int[] ids = new int[roomIds.length];
+        long journalPosition = 0;
+        int locked = 0;
+
+        if (bookings.isEmpty()) {
+            return groupReservations;
+        }
+
+        try {
+            for (; locked < locks.length; locked++) {
+                locks[locked].lock();
+            }
+
+            if (!areAvailable(roomIds, bookings)) {
+                return null;
+            }
+
+            synchronized (store) {
+                if (journal != null) {
+                    journalPosition = journal.recordReservations(store.size(), groupReservations);
+                }
+
+                for (int index = 0; index < ids.length; index++) {
+                    ids[index] = store.append(roomIds[index], customerId,
+                            bookings.get(index).getCheckInDate().getTime(),
+                            bookings.get(index).getCheckOutDate().getTime());
+                }
+            }
+
+            for (int index = 0; index < ids.length; index++) {
+                indexReservation(ids[index], roomIds[index], customerId, groupReservations.get(index));
+                feed.publishReservation(ReservationEventType.RESERVED, ids[index], -1, groupReservations.get(index));
+            }
+        } finally {
+            while (locked > 0) {
+                locks[--locked].unlock();
+            }
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+
+        return groupReservations;
+    }
+
+    /**
+     * Checks that no room of the bookings is booked and that
+     * the group doesn't book the same room twice for a night.
+     */
+    private boolean areAvailable(final int[] roomIds, final List<RoomBooking> bookings) {
+        for (int index = 0; index < roomIds.length; index++) {
+            final long checkIn = bookings.get(index).getCheckInDate().getTime();
+            final long checkOut = bookings.get(index).getCheckOutDate().getTime();
+
+            if (isRoomBooked(roomIds[index], checkIn, checkOut)) {
+                return false;
+            }
+
+            for (int other = 0; other < index; other++) {
+                if (roomIds[other] == roomIds[index] && checkIn < bookings.get(other).getCheckOutDate().getTime()
+                        && checkOut > bookings.get(other).getCheckInDate().getTime()) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds many reservations at once when the hotel is restored or seeded, e.g. from a snapshot.
+     * The reservations are not checked for overlaps, a restored hotel may contain cancelled
+     * reservations which overlap with others. Imports use {@link #addReservationsIfAvailable}.
+     * The reservations get their ids in the order of the list and the reservations of
+     * different rooms are indexed in parallel, each room under its lock, so the events
+     * of a room are published in the order of its reservations.
+     * @param newReservations which are added
+     */
+    public void addReservations(final List<Reservation> newReservations) {
+        addReservations(journal, newReservations);
+    }
+
+    private void addReservations(final ReservationJournal journal, final List<Reservation> newReservations) {
+        final int[] ids = new int[newReservations.size()];
+        long journalPosition = 0;
+        int stored = 0;
+
+        try {
+            synchronized (store) {
+                for (; stored < ids.length; stored++) {
+                    final Reservation reservation = newReservations.get(stored);
+
+                    if (journal != null) {
+                        journalPosition = journal.recordReservation(store.size(), reservation);
+                    }
+
+                    ids[stored] = store.append(getRoomId(reservation.getRoom()),
+                            getCustomerId(reservation.getCustomer()), reservation.getCheckInDate().getTime(),
+                            reservation.getCheckOutDate().getTime());
+                }
+            }
+        } finally {
+            // the reservations which were stored before the journal failed are indexed anyway
+            indexReservations(Arrays.copyOf(ids, stored), newReservations);
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+    }
+
+    /**
+     * Indexes stored reservations, the reservations of different rooms in parallel.
+     * @param ids of the reservations in ascending order without gaps
+     * @param newReservations the reservations from the first id on
+     */
+    private void indexReservations(final int[] ids, final List<Reservation> newReservations) {
+        if (ids.length == 0) {
+            return;
+        }
+
+        final int firstId = ids[0];
+        final int[] roomIds = new int[ids.length];
+        int roomCount = 0;
+
+        for (int index = 0; index < ids.length; index++) {
+            roomIds[index] = store.getRoomId(ids[index]);
+            roomCount = Math.max(roomCount, roomIds[index] + 1);
+        }
+
+        // counting sort of the ids by their room, the ids of a room stay in their order
+        final int[] starts = new int[roomCount + 1];
+        final int[] idsByRoom = new int[ids.length];
+
+        for (int roomId : roomIds) {
+            starts[roomId + 1]++;
+        }
+        for (int roomId = 0; roomId < roomCount; roomId++) {
+            starts[roomId + 1] += starts[roomId];
+        }
+
+        final int[] positions = Arrays.copyOf(starts, roomCount);
+
+        for (int index = 0; index < ids.length; index++) {
+            idsByRoom[positions[roomIds[index]]++] = ids[index];
+        }
+
+        IntStream.range(0, roomCount).parallel()
+                .filter(roomId -> starts[roomId] < starts[roomId + 1])
+                .forEach(roomId -> indexReservationsOfRoom(Arrays.copyOfRange(idsByRoom, starts[roomId],
+                        starts[roomId + 1]), id -> newReservations.get(id - firstId)));
+
+        shards.invalidateAll();
+    }
+
+    /**
+     * Adds many reservations at once, e.g. from an import, but only those
+     * whose room is free. Every reservation is checked and added under the
+     * lock of its room like a single booking, so it is also checked against
+     * the reservations before it in the list. The journal is committed once.
+     * @param newReservations which are added in the order of the list
+     * @return for every reservation if it was added, false when its room was already booked
+     * @throws IllegalArgumentException when a check-out is not after its check-in
+     */
+    public boolean[] addReservationsIfAvailable(final List<Reservation> newReservations) {
+        newReservations.forEach(reservation -> checkStay(reservation.getCheckInDate(), reservation.getCheckOutDate()));
+
+        final ReservationJournal journal = this.journal;
+        final boolean[] added = new boolean[newReservations.size()];
+        long journalPosition = 0;
+
+        for (int index = 0; index < added.length; index++) {
+            final Reservation reservation = newReservations.get(index);
+            final int roomId = getRoomId(reservation.getRoom());
+            final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+            lock.lock();
+            try {
+                if (!isRoomBooked(roomId, reservation.getCheckInDate(), reservation.getCheckOutDate())) {
+                    journalPosition = Math.max(journalPosition, addReservation(journal, reservation));
+                    added[index] = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+
+        return added;
+    }
+
+    /**
+     * Indexes reservations of the same room and publishes them under the lock of the room.
+     * @param idsOfRoom ids of the reservations in ascending order
+     * @param reservationOf gets the reservation of an id
+     */
+    private void indexReservationsOfRoom(final int[] idsOfRoom, final IntFunction<Reservation> reservationOf) {
+        final int roomId = store.getRoomId(idsOfRoom[0]);
+        final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+        lock.lock();
+        try {
+            roomReservations.computeIfAbsent(roomId, id -> new RoomReservations(store)).addAll(idsOfRoom);
+
+            for (int id : idsOfRoom) {
+                calendarOf(roomId).book(shards.indexOf(roomId), new Date(store.getCheckIn(id)),
+                        new Date(store.getCheckOut(id)));
+                addCustomersReservation(store.getCustomerId(id), id);
+                dailyReservations.add(id);
+                feed.publishReservation(ReservationEventType.RESERVED, id, -1, reservationOf.apply(id));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves the room while the hotel is restored. A reservation whose id
+     * was already restored, e.g. from the snapshot, is not added a second time.
+     * @param id of the reservation
+     * @param customer which booked the room
+     * @param room which was booked
+     * @param checkInDate date of the checkin
+     * @param checkOutDate date of the checkout
+     * @throws IllegalStateException when the reservations before the id are missing
+     */
+    public void restoreReservation(final int id, final Customer customer, final Room room,
+                                   final Date checkInDate, final Date checkOutDate) {
+        final ReentrantLock lock = roomLocks.lockFor(getRoomId(room));
+
+        lock.lock();
+        try {
+            synchronized (store) {
+                if (id < store.size()) {
+                    return;
+                }
+                if (id > store.size()) {
+                    throw new IllegalStateException("Reservation " + id + " follows reservation "
+                            + (store.size() - 1) + ", the reservations between them are missing");
+                }
+
+                addReservation(null, new Reservation(customer, room, checkInDate, checkOutDate));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves many rooms at once while the hotel is restored, e.g. from the journal.
+     * The reservations whose ids were already restored are not added a second time.
+     * @param firstId id of the first reservation
+     * @param restoredReservations with consecutive ids from the first id on
+     * @throws IllegalStateException when the reservations before the first id are missing
+     */
+    public void restoreReservations(final int firstId, final List<Reservation> restoredReservations) {
+        final int restored;
+
+        synchronized (store) {
+            if (firstId > store.size()) {
+                throw new IllegalStateException("Reservation " + firstId + " follows reservation "
+                        + (store.size() - 1) + ", the reservations between them are missing");
+            }
+
+            restored = store.size() - firstId;
+        }
+
+        if (restored < restoredReservations.size()) {
+            addReservations(null, restoredReservations.subList(restored, restoredReservations.size()));
+        }
+    }
+
+    /**
+     * Adds the reservation to the store and all indexes, the lock of the room needs to be held.
+     * The reservation gets its id and is recorded in the journal at once, so
+     * the journal contains the reservations in the order of their ids. It is
+     * recorded first, a reservation which can't be recorded is not stored.
+     * @return position of the reservation in the journal
+     */
+    private long addReservation(final ReservationJournal journal, final Reservation reservation) {
+        final int roomId = getRoomId(reservation.getRoom());
+        final int customerId = getCustomerId(reservation.getCustomer());
+        final int id;
+        long journalPosition = 0;
+
+        synchronized (store) {
+            if (journal != null) {
+                journalPosition = journal.recordReservation(store.size(), reservation);
+            }
+
+            id = store.append(roomId, customerId,
+                    reservation.getCheckInDate().getTime(), reservation.getCheckOutDate().getTime());
+        }
+
+        indexReservation(id, roomId, customerId, reservation);
+        feed.publishReservation(ReservationEventType.RESERVED, id, -1, reservation);
+
+        return journalPosition;
+    }
+
+    /**
+     * Adds a stored reservation to all indexes, the lock of the room needs to be held.
+     */
+    private void indexReservation(final int id, final int roomId, final int customerId,
+                                  final Reservation reservation) {
+        roomReservations.computeIfAbsent(roomId, newRoomId -> new RoomReservations(store)).add(id);
+        calendarOf(roomId).book(shards.indexOf(roomId), reservation.getCheckInDate(), reservation.getCheckOutDate());
+        shards.invalidateBooking(roomId, reservation.getCheckInDate().getTime(),
+                reservation.getCheckOutDate().getTime());
+        addCustomersReservation(customerId, id);
+        dailyReservations.add(id);
+    }
+
+    /**
+     * Cancels the reservation. It stays in the store as a tombstone and is
+     * skipped by all indexes, the nights of the room are free again at once.
+     * The index of the room is compacted in the background when it has too
+     * many tombstones, so neither the cancellation nor the searches copy it.
+     * @param reservation which is cancelled
+     * @return false when there is no such reservation
+     */
+    public boolean cancelReservation(final Reservation reservation) {
+        final ReservationJournal journal = this.journal;
+        final int roomId = rooms.getId(reservation.getRoom().getRoomNumber());
+        final long journalPosition;
+
+        if (roomId < 0) {
+            return false;
+        }
+
+        final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+        lock.lock();
+        try {
+            final int id = findReservationId(roomId, reservation);
+
+            if (id < 0) {
+                return false;
+            }
+
+            journalPosition = cancel(journal, id);
+            unindexReservation(roomId, id);
+            feed.publishReservation(ReservationEventType.CANCELLED, id, -1, reservation);
+        } finally {
+            lock.unlock();
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the reservation to another room or other dates. The new dates may
+     * overlap with the previous ones, e.g. to extend the stay. The previous
+     * reservation is cancelled and the new one booked under the locks of both
+     * rooms and recorded in the journal as one record.
+     * @param reservation which is changed
+     * @param room which is booked now, e.g. the same room
+     * @param checkInDate new date of the checkin
+     * @param checkOutDate new date of the checkout
+     * @return the new reservation or null when the room is booked for the new dates
+     * @throws IllegalArgumentException when there is no such reservation or the check-out is not after the check-in
+     */
+    public Reservation modifyReservation(final Reservation reservation, final Room room,
+                                         final Date checkInDate, final Date checkOutDate) {
+        checkStay(checkInDate, checkOutDate);
+
+        final ReservationJournal journal = this.journal;
+        final int previousRoomId = rooms.getId(reservation.getRoom().getRoomNumber());
+        final int roomId = getRoomId(room);
+        final int customerId = getCustomerId(reservation.getCustomer());
+        final Reservation modifiedReservation = new Reservation(reservation.getCustomer(), room,
+                checkInDate, checkOutDate);
+        final ReentrantLock[] locks = roomLocks.locksFor(new int[] {previousRoomId, roomId});
+        long journalPosition = 0;
+        int locked = 0;
+
+        if (previousRoomId < 0) {
+            throw new IllegalArgumentException("Unknown reservation");
+        }
+
+        try {
+            for (; locked < locks.length; locked++) {
+                locks[locked].lock();
+            }
+
+            final int previousId = findReservationId(previousRoomId, reservation);
+
+            if (previousId < 0) {
+                throw new IllegalArgumentException("Unknown reservation");
+            }
+            if (isRoomBooked(roomId, checkInDate.getTime(), checkOutDate.getTime(), previousId)) {
+                return null;
+            }
+
+            final int id;
+
+            synchronized (store) {
+                if (journal != null) {
+                    journalPosition = journal.recordModification(previousId, store.size(), modifiedReservation);
+                }
+
+                id = store.append(roomId, customerId, checkInDate.getTime(), checkOutDate.getTime());
+                store.cancel(previousId);
+            }
+
+            unindexReservation(previousRoomId, previousId);
+            indexReservation(id, roomId, customerId, modifiedReservation);
+            feed.publishReservation(ReservationEventType.MODIFIED, id, previousId, modifiedReservation);
+        } finally {
+            while (locked > 0) {
+                locks[--locked].unlock();
+            }
+        }
+
+        if (journal != null) {
+            journal.commit(journalPosition);
+        }
+
+        return modifiedReservation;
+    }
+
+    /**
+     * Cancels the reservation while the hotel is restored,
+     * a reservation which is already cancelled is skipped.
+     * @param id of the reservation
+     * @throws IllegalStateException when the reservation was not restored before
+     */
+    public void restoreCancellation(final int id) {
+        if (id >= store.size()) {
+            throw new IllegalStateException("Cancelled reservation " + id + " was never booked");
+        }
+
+        final int roomId = store.getRoomId(id);
+        final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+        lock.lock();
+        try {
+            if (!store.isCancelled(id)) {
+                cancel(null, id);
+                unindexReservation(roomId, id);
+
+                if (feed.hasSubscribers()) {
+                    feed.publishReservation(ReservationEventType.CANCELLED, id, -1, getReservation(id));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the id of the reservation in the index of the room, the lock of the room needs to be held.
+     * @return id of the reservation or -1 when there is none
+     */
+    private int findReservationId(final int roomId, final Reservation reservation) {
+        final RoomReservations reservationsOfRoom = roomReservations.get(roomId);
+        final int customerId = customerService.findCustomerId(reservation.getCustomer().getEmail());
+
+        if (reservationsOfRoom == null || customerId < 0) {
+            return -1;
+        }
+
+        return reservationsOfRoom.findReservation(customerId, reservation.getCheckInDate().getTime(),
+                reservation.getCheckOutDate().getTime());
+    }
+
+    /**
+     * Marks the reservation as cancelled in the store and records it in the journal at once,
+     * so a snapshot either contains the cancellation or is followed by it in the journal.
+     * A cancellation which can't be recorded is not made.
+     * @return position of the cancellation in the journal
+     */
+    private long cancel(final ReservationJournal journal, final int id) {
+        synchronized (store) {
+            final long journalPosition = journal != null ? journal.recordCancellation(id) : 0;
+
+            store.cancel(id);
+            return journalPosition;
+        }
+    }
+
+    /**
+     * Frees the nights of a cancelled reservation, the lock of the room needs to be held.
+     * The lists of the customer and the days skip the id when they are read until
+     * they are compacted on the background thread.
+     */
+    private void unindexReservation(final int roomId, final int id) {
+        final RoomReservations reservationsOfRoom = roomReservations.get(roomId);
+        final long checkIn = store.getCheckIn(id);
+        final long checkOut = store.getCheckOut(id);
+        final int fromDay = ReservationDays.dayOf(checkIn);
+        final boolean[] bookedNights = new boolean[Math.max(0, ReservationDays.nextDayOf(checkOut) - fromDay)];
+
+        if (reservationsOfRoom.cancel(id)) {
+            scheduleCompaction(roomId);
+        }
+
+        scheduleCustomerCompaction(store.getCustomerId(id));
+
+        if (dailyReservations.cancel(id)) {
+            compactor.execute(dailyReservations::compact);
+        }
+
+        reservationsOfRoom.markBookedNights(fromDay, fromDay + bookedNights.length, bookedNights);
+        calendarOf(roomId).release(shards.indexOf(roomId), fromDay, bookedNights);
+        shards.invalidateCancellation(roomId, checkIn, checkOut);
+    }
+
+    /**
+     * Compacts the index of the room on the background thread, a room
+     * which is already waiting for its compaction is not added twice.
+     */
+    private void scheduleCompaction(final int roomId) {
+        if (roomsToCompact.add(roomId)) {
+            compactor.execute(() -> compactRoom(roomId));
+        }
+    }
+
+    private void compactRoom(final int roomId) {
+        final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+        roomsToCompact.remove(roomId);
+
+        lock.lock();
+        try {
+            roomReservations.get(roomId).compact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the cancelled reservations from the list of the customer on the background thread.
+     */
+    private void scheduleCustomerCompaction(final int customerId) {
+        if (customersToCompact.add(customerId)) {
+            compactor.execute(() -> {
+                final IntList ids = reservations.get(customerId);
+
+                customersToCompact.remove(customerId);
+
+                synchronized (ids) {
+                    ids.removeIf(store::isCancelled);
+                }
+            });
+        }
+    }
+
+    private void addCustomersReservation(final int customerId, final int id) {
+        final IntList ids = reservations.computeIfAbsent(customerId, newCustomerId -> new IntList());
+
+        synchronized (ids) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Gets the id of the room, which is also its index in the occupancy calendar.
+     * Rooms which are booked before they are added get their id on the first booking.
+     * @param room which is booked
+     * @return id of the room
+     */
+    private int getRoomId(final Room room) {
+        final int roomId = rooms.intern(room.getRoomNumber());
+
+        if (rooms.get(roomId) == null) {
+            unlistedRooms.putIfAbsent(roomId, room);
+        }
+
+        return roomId;
+    }
+
+    private Room getRoom(final int roomId) {
+        final Room room = rooms.get(roomId);
+
+        return room != null ? room : unlistedRooms.get(roomId);
+    }
+
+    /**
+     * Gets the id of the customer. Customers who book before they are
+     * added get their id on the first booking.
+     * @param customer which books a room
+     * @return id of the customer
+     */
+    private int getCustomerId(final Customer customer) {
+        final int customerId = customerService.getCustomerId(customer.getEmail());
+
+        if (customerService.getCustomer(customerId) == null) {
+            unlistedCustomers.putIfAbsent(customerId, customer);
+        }
+
+        return customerId;
+    }
+
+    private Customer getCustomer(final int customerId) {
+        final Customer customer = customerService.getCustomer(customerId);
+
+        return customer != null ? customer : unlistedCustomers.get(customerId);
+    }
+
+    /**
+     * Creates the reservation with the id at the API boundary.
+     * @param id of the reservation
+     * @return the reservation
+     */
+    private Reservation getReservation(final int id) {
+        return new Reservation(getCustomer(store.getCustomerId(id)), getRoom(store.getRoomId(id)),
+                new Date(store.getCheckIn(id)), new Date(store.getCheckOut(id)));
+    }
+
     /**
      * Gets room for the wished dates
      * @param checkInDate date
@@ -77,24 +872,341 @@ public class ReservationService {
     }
 
     /**
-     * Search for available rooms
+     * Finds the cheapest rooms which are free for the wished dates. The rooms are read
+     * from the price index, cheapest first, and the search stops after the limit,
+     * so only the rooms up to the last found one are checked.
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @param roomType type of the rooms or null for all rooms
+     * @param minPrice lowest price per night or null
+     * @param maxPrice highest price per night or null
+     * @param limit maximal number of rooms
+     * @return the free rooms ordered by their price
+     */
+    public List<Room> findCheapestRooms(final Date checkInDate, final Date checkOutDate, final RoomType roomType,
+                                        final Double minPrice, final Double maxPrice, final int limit) {
+        final long checkIn = checkInDate.getTime();
+        final long checkOut = checkOutDate.getTime();
+
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        final List<Room> cheapestRooms = new ArrayList<>(Math.min(limit, rooms.size()));
+
+        priceIndex.forEachByPrice(roomType, minPrice != null ? minPrice : Double.NEGATIVE_INFINITY,
+                maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY, roomId -> {
+                    if (!isRoomBooked(roomId, checkIn, checkOut)) {
+                        cheapestRooms.add(rooms.get(roomId));
+                    }
+
+                    return cheapestRooms.size() < limit;
+                });
+
+        return cheapestRooms;
+    }
+
+    /**
+     * Finds for every room the nearest dates with the same length of stay at which it is free,
+     * from 14 days before until 28 days after the wished dates.
+     * @param checkInDate wished date
+     * @param checkOutDate wished date
+     * @return the rooms ordered by the distance to the wished dates
+     */
+    public List<AlternativeRoom> findNearestAlternativeRooms(final Date checkInDate, final Date checkOutDate) {
+        return findNearestAlternativeRooms(checkInDate, checkOutDate, -ALTERNATIVE_DAYS_BEFORE, ALTERNATIVE_DAYS_AFTER);
+    }
+
+    /**
+     * Finds for every room the nearest dates with the same length of stay at which it is free.
+     * The nights of the whole window are read once per room and the stay slides over them,
+     * so the search costs about the same as a single search for the wished dates.
+     * Dates before today are not suggested.
+     * @param checkInDate wished date
+     * @param checkOutDate wished date
+     * @param earliestOffset first shift of the dates in days, e.g. -14
+     * @param latestOffset last shift of the dates in days, e.g. 28
+     * @return the rooms ordered by the distance to the wished dates, earlier dates first on a tie
+     */
+    public List<AlternativeRoom> findNearestAlternativeRooms(final Date checkInDate, final Date checkOutDate,
+                                                             final int earliestOffset, final int latestOffset) {
+        final int fromDay = ReservationDays.dayOf(checkInDate.getTime());
+        final int nights = Math.max(1, ReservationDays.nextDayOf(checkOutDate.getTime()) - fromDay);
+        final int firstOffset = Math.max(earliestOffset, ReservationDays.today() - fromDay);
+        final List<AlternativeRoom> alternativeRooms = new ArrayList<>();
+
+        if (firstOffset > latestOffset) {
+            return alternativeRooms;
+        }
+
+        final int windowFrom = fromDay + firstOffset;
+        final int windowNights = latestOffset - firstOffset + nights;
+        final int size = rooms.size();
+
+        IntStream.range(0, shards.getShardCount(size)).parallel()
+                .mapToObj(shard -> findNearestAlternativeRooms(shards.getFirstRoomId(shard),
+                        shards.getEndRoomId(shard, size), fromDay, nights, windowFrom, windowNights,
+                        firstOffset, latestOffset))
+                .forEachOrdered(alternativeRooms::addAll);
+
+        alternativeRooms.sort(Comparator.comparingInt((AlternativeRoom alternativeRoom)
+                -> Math.abs(alternativeRoom.getOffsetDays())).thenComparingInt(AlternativeRoom::getOffsetDays));
+
+        return alternativeRooms;
+    }
+
+    /**
+     * Finds the nearest free dates of the rooms from the first to the end id.
+     */
+    private List<AlternativeRoom> findNearestAlternativeRooms(final int firstRoomId, final int endRoomId,
+                                                              final int fromDay, final int nights,
+                                                              final int windowFrom, final int windowNights,
+                                                              final int firstOffset, final int latestOffset) {
+        final List<AlternativeRoom> alternativeRooms = new ArrayList<>();
+        final boolean[] bookedNights = new boolean[windowNights];
+
+        for (int roomId = firstRoomId; roomId < endRoomId; roomId++) {
+            final Room room = rooms.get(roomId);
+            final RoomReservations reservationsOfRoom = roomReservations.get(roomId);
+
+            if (room == null) {
+                continue;
+            }
+
+            Arrays.fill(bookedNights, false);
+
+            if (reservationsOfRoom != null) {
+                reservationsOfRoom.markBookedNights(windowFrom, windowFrom + bookedNights.length, bookedNights);
+            }
+
+            final int offset = nearestFreeOffset(bookedNights, nights, firstOffset, latestOffset);
+
+            if (offset != Integer.MIN_VALUE) {
+                alternativeRooms.add(new AlternativeRoom(room, ReservationDays.dateOf(fromDay + offset),
+                        ReservationDays.dateOf(fromDay + offset + nights), offset));
+            }
+        }
+
+        return alternativeRooms;
+    }
+
+    /**
+     * Slides the stay over the nights and counts the booked nights in it.
+     * @return the free offset nearest to 0 or Integer.MIN_VALUE when there is none
+     */
+    private static int nearestFreeOffset(final boolean[] bookedNights, final int nights,
+                                         final int firstOffset, final int latestOffset) {
+        int booked = 0;
+        int nearestOffset = Integer.MIN_VALUE;
+
+        for (int night = 0; night < nights; night++) {
+            booked += bookedNights[night] ? 1 : 0;
+        }
+
+        for (int offset = firstOffset; offset <= latestOffset; offset++) {
+            final int start = offset - firstOffset;
+
+            if (offset > firstOffset) {
+                booked += (bookedNights[start + nights - 1] ? 1 : 0) - (bookedNights[start - 1] ? 1 : 0);
+            }
+
+            if (booked == 0 && (nearestOffset == Integer.MIN_VALUE || Math.abs(offset) < Math.abs(nearestOffset))) {
+                nearestOffset = offset;
+            }
+
+            if (nearestOffset != Integer.MIN_VALUE && offset >= Math.abs(nearestOffset)) {
+                break;
+            }
+        }
+
+        return nearestOffset;
+    }
+
+    /**
+     * Search for available rooms. Every shard answers from its cache of recently
+     * searched dates, the shards which don't have the dates search their own rooms
+     * in parallel. The rooms of the shards are returned one after the other, so
+     * they stay ordered by their ids.
      * @param checkInDate date
      * @param checkOutDate date
      * @return all rooms available
      */
     private Collection<Room> findAvailableRooms(final Date checkInDate, final Date checkOutDate) {
-        final Collection<Reservation> allReservations = getAllReservations();
-        final Collection<Room> notAvailableRooms = new LinkedList<>();
+        final long checkIn = checkInDate.getTime();
+        final long checkOut = checkOutDate.getTime();
+        final int size = rooms.size();
+        final int shardCount = shards.getShardCount(size);
+        final List<Room> cachedRooms = shards.getCache(0).get(checkIn, checkOut);
+
+        if (shardCount == 1) {
+            return cachedRooms != null ? cachedRooms : searchShard(0, size, checkInDate, checkOutDate);
+        }
 
-        for (Reservation reservation : allReservations) {
-            if (reservationOverlaps(reservation, checkInDate, checkOutDate)) {
-                notAvailableRooms.add(reservation.getRoom());
+        final List<List<Room>> roomsOfShards = new ArrayList<>(shardCount);
+        final IntList missedShards = new IntList();
+
+        roomsOfShards.add(cachedRooms);
+
+        for (int shard = 1; shard < shardCount; shard++) {
+            roomsOfShards.add(shards.getCache(shard).get(checkIn, checkOut));
+        }
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (roomsOfShards.get(shard) == null) {
+                missedShards.add(shard);
             }
         }
 
-        return rooms.values().stream().filter(room -> notAvailableRooms.stream()
-                .noneMatch(notAvailableRoom -> notAvailableRoom.equals(room)))
-                .collect(Collectors.toList());
+        if (missedShards.size() == 1) {
+            roomsOfShards.set(missedShards.get(0), searchShard(missedShards.get(0), size, checkInDate, checkOutDate));
+        } else if (missedShards.size() > 1) {
+            final int[] shardsToSearch = missedShards.toArray();
+            final List<List<Room>> foundRooms = IntStream.of(shardsToSearch).parallel()
+                    .mapToObj(shard -> searchShard(shard, size, checkInDate, checkOutDate))
+                    .collect(Collectors.toList());
+
+            for (int index = 0; index < shardsToSearch.length; index++) {
+                roomsOfShards.set(shardsToSearch[index], foundRooms.get(index));
+            }
+        }
+
+        return new ConcatenatedList<>(roomsOfShards);
+    }
+
+    /**
+     * Searches the available rooms of a shard and caches them
+     * @param shard index of the shard
+     * @param size number of room ids
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @return the available rooms of the shard
+     */
+    private List<Room> searchShard(final int shard, final int size, final Date checkInDate, final Date checkOutDate) {
+        final long checkIn = checkInDate.getTime();
+        final long checkOut = checkOutDate.getTime();
+        final AvailabilityCache cache = shards.getCache(shard);
+        final long cacheGeneration = cache.getGeneration();
+        final int firstRoomId = shards.getFirstRoomId(shard);
+        final int endRoomId = shards.getEndRoomId(shard, size);
+        final OccupancyCalendar calendar = shards.getCalendar(shard);
+
+        if (calendar.isBehind()) {
+            moveCalendar(shard, calendar);
+        }
+
+        final BitSet calendarRoomIndexes = calendar.covers(checkInDate, checkOutDate)
+                ? findAvailableRoomIndexesInCalendar(calendar, checkInDate, checkOutDate, firstRoomId, endRoomId)
+                : null;
+        final BitSet roomIndexes = calendarRoomIndexes != null ? calendarRoomIndexes
+                : findAvailableRoomIndexes(checkIn, checkOut, firstRoomId, endRoomId);
+        final List<Room> availableRooms = new ArrayList<>(roomIndexes.cardinality());
+
+        for (int index = roomIndexes.nextSetBit(0); index >= 0; index = roomIndexes.nextSetBit(index + 1)) {
+            availableRooms.add(rooms.get(firstRoomId + index));
+        }
+
+        final List<Room> result = Collections.unmodifiableList(availableRooms);
+
+        cache.put(checkIn, checkOut, result, roomIndexes, cacheGeneration);
+        return result;
+    }
+
+    /**
+     * Gets the occupancy calendar of the shard of the room.
+     */
+    private OccupancyCalendar calendarOf(final int roomId) {
+        return shards.getCalendar(shards.shardOf(roomId));
+    }
+
+    /**
+     * Moves the window of the occupancy calendar of a shard to today and fills the nights
+     * which entered it from the reservations of the rooms of the shard. Only one search moves it.
+     */
+    private void moveCalendar(final int shard, final OccupancyCalendar calendar) {
+        synchronized (calendar) {
+            final long firstNewNight = calendar.moveTo(ReservationDays.today());
+
+            if (firstNewNight < 0) {
+                return;
+            }
+
+            final long endNight = calendar.getEndNight();
+            final int endRoomId = shards.getEndRoomId(shard, rooms.size());
+
+            for (int roomId = shards.getFirstRoomId(shard); roomId < endRoomId; roomId++) {
+                final RoomReservations reservationsOfRoom = roomReservations.get(roomId);
+
+                if (reservationsOfRoom == null) {
+                    continue;
+                }
+
+                final boolean[] bookedNights = new boolean[(int) (endNight - firstNewNight)];
+                final ReentrantLock lock = roomLocks.lockFor(roomId);
+
+                lock.lock();
+                try {
+                    reservationsOfRoom.markBookedNights((int) firstNewNight, (int) endNight, bookedNights);
+                    calendar.occupy(shards.indexOf(roomId), firstNewNight, bookedNights);
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            calendar.markFilled(endNight);
+        }
+    }
+
+    /**
+     * Search for available rooms with the reservations of every room
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @param firstRoomId id of the first room which is searched
+     * @param endRoomId id after the last room which is searched
+     * @return indexes of all rooms available, counted from the first room
+     */
+    private BitSet findAvailableRoomIndexes(final long checkIn, final long checkOut,
+                                            final int firstRoomId, final int endRoomId) {
+        final BitSet roomIndexes = new BitSet(endRoomId - firstRoomId);
+
+        for (int roomId = firstRoomId; roomId < endRoomId; roomId++) {
+            if (rooms.get(roomId) != null && !isRoomBooked(roomId, checkIn, checkOut)) {
+                roomIndexes.set(roomId - firstRoomId);
+            }
+        }
+
+        return roomIndexes;
+    }
+
+    /**
+     * Search for available rooms with the occupied rooms
+     * of the occupancy calendar of the shard
+     * @param calendar of the shard
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @param firstRoomId id of the first room which is searched
+     * @param endRoomId id after the last room which is searched
+     * @return indexes of all rooms available, counted from the first room,
+     *         or null when the calendar no longer covers the dates
+     */
+    private BitSet findAvailableRoomIndexesInCalendar(final OccupancyCalendar calendar, final Date checkInDate,
+                                                      final Date checkOutDate, final int firstRoomId,
+                                                      final int endRoomId) {
+        final BitSet occupiedRooms = calendar.occupiedRooms(checkInDate, checkOutDate, 0, endRoomId - firstRoomId);
+
+        if (occupiedRooms == null) {
+            return null;
+        }
+
+        final int size = endRoomId - firstRoomId;
+        final BitSet roomIndexes = new BitSet(size);
+
+        for (int index = occupiedRooms.nextClearBit(0); index < size; index = occupiedRooms.nextClearBit(index + 1)) {
+            if (rooms.get(firstRoomId + index) != null) {
+                roomIndexes.set(index);
+            }
+        }
+
+        return roomIndexes;
     }
 
     /**
@@ -111,52 +1223,245 @@ public class ReservationService {
     }
 
     /**
-     * Checks if a reservation overlaps with the
-     * checkin and checkout date for another reservation
-     * @param reservation reservation
+     * Checks if the room has a reservation which overlaps
+     * with the checkin and checkout date
+     * @param roomId id of the room
      * @param checkInDate date
      * @param checkOutDate date
-     * @return false when it overlaps
+     * @return true when it overlaps
      */
-    private boolean reservationOverlaps(final Reservation reservation, final Date checkInDate,
-                                        final Date checkOutDate){
-        return checkInDate.before(reservation.getCheckOutDate())
-                && checkOutDate.after(reservation.getCheckInDate());
+    private boolean isRoomBooked(final int roomId, final Date checkInDate, final Date checkOutDate) {
+        return isRoomBooked(roomId, checkInDate.getTime(), checkOutDate.getTime());
+    }
+
+    private boolean isRoomBooked(final int roomId, final long checkIn, final long checkOut) {
+        return isRoomBooked(roomId, checkIn, checkOut, -1);
+    }
+
+    private boolean isRoomBooked(final int roomId, final long checkIn, final long checkOut, final int ignoredId) {
+        final RoomReservations reservationsOfRoom = roomReservations.get(roomId);
+
+        return reservationsOfRoom != null && reservationsOfRoom.isBooked(checkIn, checkOut, ignoredId);
     }
 
     /**
      * gets customer reservation
      * @param customer
-     * @return
+     * @return the reservations in the order of their ids, empty when the customer has none
      */
     public Collection<Reservation> getCustomersReservation(final Customer customer) {
-        return reservations.get(customer.getEmail());
+        return Arrays.stream(getCustomersIds(customer.getEmail())).filter(id -> !store.isCancelled(id))
+                .mapToObj(this::getReservation).collect(Collectors.toList());
+    }
+
+    /**
+     * Passes the first reservations with their id to the action in the order of their ids,
+     * e.g. to write a snapshot. Cancelled reservations are passed as well, so the ids have no gaps.
+     * @param count of reservations, at most {@link #getReservationIdCount()}
+     * @param action for each reservation
+     */
+    public void forEachReservation(final int count, final BiConsumer<Integer, Reservation> action) {
+        for (int id = 0; id < count; id++) {
+            action.accept(id, getReservation(id));
+        }
     }
 
     /**
-     * Displays all reservation
+     * Gets the number of reservations including the cancelled ones, which is also the id of the next reservation.
+     * @return number of reservation ids
      */
-    public void printAllReservation() {
-        final Collection<Reservation> reservations = getAllReservations();
+    public int getReservationIdCount() {
+        return store.size();
+    }
 
-        if (reservations.isEmpty()) {
-            System.out.println("No reservations found.");
-        } else {
-            for (Reservation reservation : reservations) {
-                System.out.println(reservation + "\n");
+    /**
+     * Gets the number of reservations which are not cancelled.
+     * @return number of active reservations
+     */
+    public int getActiveReservationCount() {
+        return store.activeCount();
+    }
+
+    /**
+     * Gets the ids of the cancelled reservations among the first reservations, e.g. to write a snapshot.
+     * @param count of reservations, at most {@link #getReservationIdCount()}
+     * @return the ids in ascending order
+     */
+    public int[] getCancelledIds(final int count) {
+        final IntList ids = new IntList();
+
+        for (int id = 0; id < count; id++) {
+            if (store.isCancelled(id)) {
+                ids.add(id);
             }
         }
+
+        return ids.toArray();
     }
 
     /**
-     * Gets all reservation
+     * Gets the reservations which check in on the day.
+     * @param day any time of the day
+     * @return the reservations in the order of their ids
+     */
+    public List<Reservation> getArrivals(final Date day) {
+        return getReservations(dailyReservations.getArrivals(ReservationDays.dayOf(day.getTime())));
+    }
+
+    /**
+     * Gets the reservations which check out on the day.
+     * @param day any time of the day
+     * @return the reservations in the order of their ids
+     */
+    public List<Reservation> getDepartures(final Date day) {
+        return getReservations(dailyReservations.getDepartures(ReservationDays.dayOf(day.getTime())));
+    }
+
+    /**
+     * Gets the reservations which stay over the night after the day.
+     * @param night any time of the day
+     * @return the reservations in the order of their ids
+     */
+    public List<Reservation> getInHouse(final Date night) {
+        return getReservations(dailyReservations.getInHouse(ReservationDays.dayOf(night.getTime())));
+    }
+
+    /**
+     * Gets the reservations of the room which stay over the night after the day.
+     * @param roomNumber number of the room
+     * @param night any time of the day
+     * @return the reservations, usually one or none
+     */
+    public List<Reservation> getInHouse(final String roomNumber, final Date night) {
+        final RoomReservations reservationsOfRoom = roomReservations.get(rooms.getId(roomNumber));
+
+        if (reservationsOfRoom == null) {
+            return new ArrayList<>();
+        }
+
+        return getReservations(reservationsOfRoom.findReservationsOnNight(ReservationDays.dayOf(night.getTime())));
+    }
+
+    private List<Reservation> getReservations(final int[] ids) {
+        Arrays.sort(ids);
+        return Arrays.stream(ids).filter(id -> !store.isCancelled(id))
+                .mapToObj(this::getReservation).collect(Collectors.toList());
+    }
+
+    /**
+     * Calculates occupancy, sold nights, ADR and RevPAR of every room type per period.
+     * The rooms are counted in parallel from their reservation indexes.
+     * @param fromDate first night of the report
+     * @param toDate day after the last night of the report
+     * @param period length of the periods
+     * @return the statistics ordered by period and room type
+     */
+    public List<OccupancyStatistics> getOccupancyStatistics(final Date fromDate, final Date toDate,
+                                                            final ReportPeriod period) {
+        final int size = rooms.size();
+        final Room[] listedRooms = new Room[size];
+        final RoomReservations[] reservationsOfRooms = new RoomReservations[size];
+
+        for (int roomId = 0; roomId < size; roomId++) {
+            listedRooms[roomId] = rooms.get(roomId);
+            reservationsOfRooms[roomId] = roomReservations.get(roomId);
+        }
+
+        return new OccupancyAnalytics(listedRooms, reservationsOfRooms, ReservationDays.dayOf(fromDate.getTime()),
+                ReservationDays.dayOf(toDate.getTime()), period).calculate();
+    }
+
+    /**
+     * Gets a page of the reservations which match the filter, in the order of their ids.
+     * Only the reservations of the page are created.
+     * @param filter selects the reservations
+     * @param cursor 0 for the first page or the cursor of the previous page
+     * @param limit maximal number of reservations of the page
+     * @return the page
+     */
+    public Page<Reservation> getReservations(final ReservationFilter filter, final int cursor, final int limit) {
+        final int[] ids = filter.getCustomerEmail() != null ? getCustomersIds(filter.getCustomerEmail()) : null;
+        final int size = ids != null ? ids.length : store.size();
+        final List<Reservation> reservations = new ArrayList<>(Math.min(limit, size));
+        int position = ids != null ? firstPositionFrom(ids, cursor) : Math.max(cursor, 0);
+
+        for (; position < size && reservations.size() < limit; position++) {
+            final int id = ids != null ? ids[position] : position;
+            final Room room = getRoom(store.getRoomId(id));
+
+            if (!store.isCancelled(id) && filter.matches(room, store.getCheckIn(id), store.getCheckOut(id))) {
+                reservations.add(getReservation(id));
+            }
+        }
+
+        if (position == size) {
+            return new Page<>(reservations, Page.END);
+        }
+
+        return new Page<>(reservations, ids != null ? ids[position] : position);
+    }
+
+    /**
+     * Gets the ids of the reservations of the customer in ascending order.
+     */
+    private int[] getCustomersIds(final String customerEmail) {
+        final IntList ids = reservations.get(customerService.findCustomerId(customerEmail));
+
+        if (ids == null) {
+            return new int[0];
+        }
+
+        final int[] customersIds;
+
+        synchronized (ids) {
+            customersIds = ids.toArray();
+        }
+
+        Arrays.sort(customersIds);
+        return customersIds;
+    }
+
+    private static int firstPositionFrom(final int[] sortedIds, final int cursor) {
+        final int position = Arrays.binarySearch(sortedIds, cursor);
+
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Gets a page of the rooms in the order they were added.
+     * @param roomType type of the rooms or null for all rooms
+     * @param cursor 0 for the first page or the cursor of the previous page
+     * @param limit maximal number of rooms of the page
+     * @return the page
+     */
+    public Page<Room> getRooms(final RoomType roomType, final int cursor, final int limit) {
+        final int size = rooms.size();
+        final List<Room> page = new ArrayList<>(Math.min(limit, size));
+        int roomId = Math.max(cursor, 0);
+
+        for (; roomId < size && page.size() < limit; roomId++) {
+            final Room room = rooms.get(roomId);
+
+            if (room != null && (roomType == null || room.getRoomType() == roomType)) {
+                page.add(room);
+            }
+        }
+
+        return new Page<>(page, roomId < size ? roomId : Page.END);
+    }
+
+    /**
+     * Gets all reservation which are not cancelled
      * @return the reservation
      */
-    private Collection<Reservation> getAllReservations() {
-        final Collection<Reservation> allReservations = new LinkedList<>();
+    public Collection<Reservation> getAllReservations() {
+        final int count = store.size();
+        final Collection<Reservation> allReservations = new ArrayList<>(count);
 
-        for(Collection<Reservation> reservations : reservations.values()) {
-            allReservations.addAll(reservations);
+        for (int id = 0; id < count; id++) {
+            if (!store.isCancelled(id)) {
+                allReservations.add(getReservation(id));
+            }
         }
 
         return allReservations;
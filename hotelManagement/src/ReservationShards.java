@@ -0,0 +1,186 @@
+import java.util.function.ToLongFunction;
+
+/**
+ * Splits the rooms into shards of consecutive room ids, e.g. the rooms of
+ * one property which were added together. Every shard has its own cache of
+ * searched date ranges and its own occupancy calendar, so a booking only
+ * invalidates and locks the cache of its own shard, new rooms only grow the
+ * calendar of their shard, and a search can check the shards in parallel.
+ * The caches and calendars address the rooms by their index inside the shard.
+ */
+public class ReservationShards implements ReservationShardsMBean {
+
+    private static final int WORD_BITS = Long.SIZE;
+
+    private final int roomsPerShard;
+    private final int cacheRanges;
+    private final IdArray<AvailabilityCache> caches = new IdArray<>();
+    private final IdArray<OccupancyCalendar> calendars = new IdArray<>();
+    private volatile int shardCount = 1;
+
+    /**
+     * Creates the shards.
+     * @param roomsPerShard rooms of a shard, it is rounded up to a multiple of 64
+     * @param cacheRanges date ranges which every shard caches
+     */
+    public ReservationShards(final int roomsPerShard, final int cacheRanges) {
+        if (roomsPerShard <= 0) {
+            throw new IllegalArgumentException("A shard needs at least one room");
+        }
+
+        this.roomsPerShard = (roomsPerShard + WORD_BITS - 1) / WORD_BITS * WORD_BITS;
+        this.cacheRanges = cacheRanges;
+    }
+
+    public int shardOf(final int roomId) {
+        return roomId / roomsPerShard;
+    }
+
+    public int getFirstRoomId(final int shard) {
+        return shard * roomsPerShard;
+    }
+
+    /**
+     * Gets the id after the last room of the shard.
+     * @param shard index of the shard
+     * @param roomCount number of room ids which are in use
+     * @return the end of the room ids of the shard
+     */
+    public int getEndRoomId(final int shard, final int roomCount) {
+        return Math.max(getFirstRoomId(shard), Math.min(roomCount, getFirstRoomId(shard) + roomsPerShard));
+    }
+
+    /**
+     * Gets the number of shards which the room ids need, at least one.
+     * @param roomCount number of room ids which are in use
+     * @return the number of shards
+     */
+    public int getShardCount(final int roomCount) {
+        return Math.max(1, (roomCount + roomsPerShard - 1) / roomsPerShard);
+    }
+
+    /**
+     * Gets the cache of the shard and creates it when the shard is used the first time.
+     * @param shard index of the shard
+     * @return the cache of the shard
+     */
+    public AvailabilityCache getCache(final int shard) {
+        final AvailabilityCache cache = caches.get(shard);
+
+        return cache != null ? cache : caches.computeIfAbsent(shard, newShard -> {
+            shardCount = Math.max(shardCount, newShard + 1);
+            return new AvailabilityCache(cacheRanges);
+        });
+    }
+
+    /**
+     * Gets the occupancy calendar of the shard and creates it when the shard is used the first time.
+     * @param shard index of the shard
+     * @return the calendar of the shard
+     */
+    public OccupancyCalendar getCalendar(final int shard) {
+        final OccupancyCalendar calendar = calendars.get(shard);
+
+        return calendar != null ? calendar : calendars.computeIfAbsent(shard, newShard -> new OccupancyCalendar());
+    }
+
+    /**
+     * Removes the ranges of the shard which overlap with a booking of the room.
+     * @param roomId id of the booked room
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     */
+    public void invalidateBooking(final int roomId, final long checkIn, final long checkOut) {
+        getCache(shardOf(roomId)).invalidateBooking(indexOf(roomId), checkIn, checkOut);
+    }
+
+    /**
+     * Removes the ranges of the shard which overlap with a cancelled reservation of the room.
+     * @param roomId id of the room which may be free now
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     */
+    public void invalidateCancellation(final int roomId, final long checkIn, final long checkOut) {
+        getCache(shardOf(roomId)).invalidateCancellation(indexOf(roomId), checkIn, checkOut);
+    }
+
+    /**
+     * Removes the ranges of the shard in which the room was available or is available now.
+     * @param roomId id of the added or changed room
+     * @param isAvailable checks if the room is available from the check-in millis to the check-out millis
+     */
+    public void invalidateRoom(final int roomId, final AvailabilityCache.RangeCheck isAvailable) {
+        getCache(shardOf(roomId)).invalidateRoom(indexOf(roomId), isAvailable);
+    }
+
+    /**
+     * Removes the ranges of all shards, e.g. after many reservations were added at once.
+     */
+    public void invalidateAll() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            final AvailabilityCache cache = caches.get(shard);
+
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the room inside its shard.
+     * @param roomId id of the room
+     * @return index in the cache and the calendar of the shard
+     */
+    public int indexOf(final int roomId) {
+        return roomId - getFirstRoomId(shardOf(roomId));
+    }
+
+    @Override
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    @Override
+    public int getRoomsPerShard() {
+        return this.roomsPerShard;
+    }
+
+    @Override
+    public int getSize() {
+        return (int) sum(AvailabilityCache::getSize);
+    }
+
+    @Override
+    public long getHitCount() {
+        return sum(AvailabilityCache::getHitCount);
+    }
+
+    @Override
+    public long getMissCount() {
+        return sum(AvailabilityCache::getMissCount);
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return sum(AvailabilityCache::getEvictionCount);
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return sum(AvailabilityCache::getInvalidationCount);
+    }
+
+    private long sum(final ToLongFunction<AvailabilityCache> statistic) {
+        long sum = 0;
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            final AvailabilityCache cache = caches.get(shard);
+
+            if (cache != null) {
+                sum += statistic.applyAsLong(cache);
+            }
+        }
+
+        return sum;
+    }
+}
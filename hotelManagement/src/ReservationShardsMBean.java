@@ -0,0 +1,10 @@
+/**
+ * Management interface of the shards of the reservation service,
+ * the cache statistics are the sums over all shards.
+ */
+public interface ReservationShardsMBean extends AvailabilityCacheMBean {
+
+    int getShardCount();
+
+    int getRoomsPerShard();
+}
@@ -0,0 +1,251 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of all rooms, customers and reservations.
+ * Rooms and customers are stored once in dictionaries, the reservations
+ * reference them by their position. Every field is stored as its own
+ * column, followed by a checksum of the whole file.
+ * The reservations are stored in the order of their ids, so they get the same
+ * ids when the snapshot is loaded and the journal can skip them by their id.
+ * Cancelled reservations keep their place and are listed by their ids at the end.
+ */
+public class ReservationSnapshot {
+
+    private static final int MAGIC = 0x48544c53;
+    private static final int VERSION = 3;
+    private static final int FIRST_VERSION = 2;
+    private static final int CANCELLED_IDS_VERSION = 3;
+    private static final int LOAD_CHUNK = 1 << 16;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private ReservationSnapshot() {}
+
+    /**
+     * Writes the current state of the services to the file. Bookings can go
+     * on meanwhile, they may or may not be part of the snapshot.
+     * @param file of the snapshot
+     * @throws IOException when the snapshot can't be written
+     */
+    public static void write(final Path file) throws IOException {
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final CustomerService customerService = CustomerService.getSingleton();
+
+        final List<Room> rooms = new ArrayList<>(reservationService.getAllRooms());
+        final List<Customer> customers = new ArrayList<>(customerService.getAllCustomers());
+        final int addedRooms = rooms.size();
+        final int addedCustomers = customers.size();
+        final Map<String, Integer> roomIds = new HashMap<>();
+        final Map<String, Integer> customerIds = new HashMap<>();
+        final int reservations = reservationService.getReservationIdCount();
+        final int[] roomColumn = new int[reservations];
+        final int[] customerColumn = new int[reservations];
+        final long[] checkInColumn = new long[reservations];
+        final long[] checkOutColumn = new long[reservations];
+
+        rooms.forEach(room -> roomIds.put(room.getRoomNumber(), roomIds.size()));
+        customers.forEach(customer -> customerIds.put(customer.getEmail(), customerIds.size()));
+
+        reservationService.forEachReservation(reservations, (id, reservation) -> {
+            if (roomIds.putIfAbsent(reservation.getRoom().getRoomNumber(), roomIds.size()) == null) {
+                rooms.add(reservation.getRoom());
+            }
+            if (customerIds.putIfAbsent(reservation.getCustomer().getEmail(), customerIds.size()) == null) {
+                customers.add(reservation.getCustomer());
+            }
+            roomColumn[id] = roomIds.get(reservation.getRoom().getRoomNumber());
+            customerColumn[id] = customerIds.get(reservation.getCustomer().getEmail());
+            checkInColumn[id] = reservation.getCheckInDate().getTime();
+            checkOutColumn[id] = reservation.getCheckOutDate().getTime();
+        });
+
+        final int[] cancelledIds = reservationService.getCancelledIds(reservations);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final CRC32 checksum = new CRC32();
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), BUFFER_BYTES));
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            output.writeInt(rooms.size());
+            output.writeInt(addedRooms);
+            for (Room room : rooms) {
+                writeString(output, room.getRoomNumber());
+            }
+            for (Room room : rooms) {
+                output.writeDouble(room.getPrice());
+            }
+            for (Room room : rooms) {
+                output.writeByte(room.getRoomType().ordinal());
+            }
+
+            output.writeInt(customers.size());
+            output.writeInt(addedCustomers);
+            for (Customer customer : customers) {
+                writeString(output, customer.getEmail());
+            }
+            for (Customer customer : customers) {
+                writeString(output, customer.getFirstName());
+            }
+            for (Customer customer : customers) {
+                writeString(output, customer.getLastName());
+            }
+
+            output.writeInt(reservations);
+            for (int roomId : roomColumn) {
+                output.writeInt(roomId);
+            }
+            for (int customerId : customerColumn) {
+                output.writeInt(customerId);
+            }
+            for (long checkIn : checkInColumn) {
+                output.writeLong(checkIn);
+            }
+            for (long checkOut : checkOutColumn) {
+                output.writeLong(checkOut);
+            }
+
+            output.writeInt(cancelledIds.length);
+            for (int cancelledId : cancelledIds) {
+                output.writeInt(cancelledId);
+            }
+
+            output.flush();
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) checksum.getValue()));
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Loads a snapshot into the services.
+     * @param file of the snapshot
+     * @throws IOException when the snapshot can't be read or is damaged
+     */
+    public static void load(final Path file) throws IOException {
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final CustomerService customerService = CustomerService.getSingleton();
+        final MappedByteBuffer snapshot;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        verify(snapshot, file);
+        snapshot.position(2 * Integer.BYTES);
+
+        final Room[] rooms = new Room[snapshot.getInt()];
+        final int addedRooms = snapshot.getInt();
+        final String[] roomNumbers = readStrings(snapshot, rooms.length);
+        final double[] prices = new double[rooms.length];
+
+        for (int room = 0; room < rooms.length; room++) {
+            prices[room] = snapshot.getDouble();
+        }
+        for (int room = 0; room < rooms.length; room++) {
+            rooms[room] = new Room(roomNumbers[room], prices[room], RoomType.values()[snapshot.get()]);
+        }
+
+        reservationService.addRooms(Arrays.asList(rooms).subList(0, addedRooms));
+
+        final Customer[] customers = new Customer[snapshot.getInt()];
+        final int addedCustomers = snapshot.getInt();
+        final String[] emails = readStrings(snapshot, customers.length);
+        final String[] firstNames = readStrings(snapshot, customers.length);
+        final String[] lastNames = readStrings(snapshot, customers.length);
+
+        for (int customer = 0; customer < customers.length; customer++) {
+            if (customer < addedCustomers) {
+                customerService.addCustomer(emails[customer], firstNames[customer], lastNames[customer]);
+                customers[customer] = customerService.getCustomer(emails[customer]);
+            } else {
+                customers[customer] = new Customer(firstNames[customer], lastNames[customer], emails[customer]);
+            }
+        }
+
+        final int reservations = snapshot.getInt();
+        final int roomColumn = snapshot.position();
+        final int customerColumn = roomColumn + reservations * Integer.BYTES;
+        final int checkInColumn = customerColumn + reservations * Integer.BYTES;
+        final int checkOutColumn = checkInColumn + reservations * Long.BYTES;
+
+        final List<Reservation> restoredReservations = new ArrayList<>(Math.min(reservations, LOAD_CHUNK));
+
+        for (int reservation = 0; reservation < reservations; reservation++) {
+            restoredReservations.add(new Reservation(
+                    customers[snapshot.getInt(customerColumn + reservation * Integer.BYTES)],
+                    rooms[snapshot.getInt(roomColumn + reservation * Integer.BYTES)],
+                    new Date(snapshot.getLong(checkInColumn + reservation * Long.BYTES)),
+                    new Date(snapshot.getLong(checkOutColumn + reservation * Long.BYTES))));
+
+            if (restoredReservations.size() == LOAD_CHUNK) {
+                reservationService.addReservations(restoredReservations);
+                restoredReservations.clear();
+            }
+        }
+
+        reservationService.addReservations(restoredReservations);
+
+        if (snapshot.getInt(4) >= CANCELLED_IDS_VERSION) {
+            snapshot.position(checkOutColumn + reservations * Long.BYTES);
+
+            for (int cancelled = snapshot.getInt(); cancelled > 0; cancelled--) {
+                reservationService.restoreCancellation(snapshot.getInt());
+            }
+        }
+    }
+
+    private static void verify(final ByteBuffer snapshot, final Path file) throws IOException {
+        final int checksumPosition = snapshot.limit() - Integer.BYTES;
+        final CRC32 checksum = new CRC32();
+
+        if (checksumPosition < 2 * Integer.BYTES || snapshot.getInt(0) != MAGIC
+                || snapshot.getInt(4) < FIRST_VERSION || snapshot.getInt(4) > VERSION) {
+            throw new IOException("Not a snapshot: " + file);
+        }
+
+        checksum.update(snapshot.slice(0, checksumPosition));
+
+        if ((int) checksum.getValue() != snapshot.getInt(checksumPosition)) {
+            throw new IOException("Damaged snapshot: " + file);
+        }
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String[] readStrings(final ByteBuffer snapshot, final int count) {
+        final String[] values = new String[count];
+
+        for (int index = 0; index < count; index++) {
+            final byte[] bytes = new byte[snapshot.getInt()];
+
+            snapshot.get(bytes);
+            values[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,152 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the reservations as columns of primitive values instead of objects.
+ * The id of a reservation is its row: the room id, the customer id and the
+ * check-in and check-out day. Reservations which don't start and end at
+ * midnight keep their exact times in a separate map.
+ * Cancelled reservations keep their row and are only marked as cancelled,
+ * so the ids of the following reservations don't change.
+ * The columns grow in segments, so existing rows are never copied and can
+ * be read without locking once their id was published.
+ */
+public class ReservationStore {
+
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+    private static final int EXACT_TIMES = Integer.MIN_VALUE;
+
+    private final Map<Integer, long[]> exactTimes = new ConcurrentHashMap<>();
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int size;
+    private volatile int cancelledCount;
+
+    /**
+     * Appends a reservation.
+     * @param roomId id of the room
+     * @param customerId id of the customer
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return id of the reservation
+     */
+    public synchronized int append(final int roomId, final int customerId, final long checkIn, final long checkOut) {
+        final int id = size;
+        final int segmentIndex = id >>> SEGMENT_BITS;
+
+        if (segmentIndex == segments.length) {
+            final Segment[] grown = Arrays.copyOf(segments, segmentIndex + 1);
+            grown[segmentIndex] = new Segment();
+            segments = grown;
+        }
+
+        final Segment segment = segments[segmentIndex];
+        final int row = id & SEGMENT_MASK;
+
+        segment.roomIds[row] = roomId;
+        segment.customerIds[row] = customerId;
+
+        if (isWholeDays(checkIn, checkOut)) {
+            segment.checkInDays[row] = ReservationDays.dayOf(checkIn);
+            segment.checkOutDays[row] = ReservationDays.dayOf(checkOut);
+        } else {
+            segment.checkOutDays[row] = EXACT_TIMES;
+            exactTimes.put(id, new long[] {checkIn, checkOut});
+        }
+
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Checks if a reservation with these times is stored as days.
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return true when both are at midnight and the stay is at least one night
+     */
+    public static boolean isWholeDays(final long checkIn, final long checkOut) {
+        return checkIn < checkOut && ReservationDays.isStartOfDay(checkIn) && ReservationDays.isStartOfDay(checkOut);
+    }
+
+    /**
+     * Gets the number of rows, including the cancelled reservations.
+     * @return id of the next reservation
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of reservations which are not cancelled.
+     * @return number of active reservations
+     */
+    public int activeCount() {
+        return size - cancelledCount;
+    }
+
+    /**
+     * Marks the reservation as cancelled, its row stays in the store.
+     * @param id of the reservation
+     */
+    public synchronized void cancel(final int id) {
+        final boolean[] cancelled = segments[id >>> SEGMENT_BITS].cancelled;
+
+        if (!cancelled[id & SEGMENT_MASK]) {
+            cancelled[id & SEGMENT_MASK] = true;
+            cancelledCount++;
+        }
+    }
+
+    public boolean isCancelled(final int id) {
+        return segments[id >>> SEGMENT_BITS].cancelled[id & SEGMENT_MASK];
+    }
+
+    public int getRoomId(final int id) {
+        return segments[id >>> SEGMENT_BITS].roomIds[id & SEGMENT_MASK];
+    }
+
+    public int getCustomerId(final int id) {
+        return segments[id >>> SEGMENT_BITS].customerIds[id & SEGMENT_MASK];
+    }
+
+    /**
+     * Checks if the reservation is stored as days.
+     * @param id of the reservation
+     * @return false when it has exact times
+     */
+    public boolean hasWholeDays(final int id) {
+        return segments[id >>> SEGMENT_BITS].checkOutDays[id & SEGMENT_MASK] != EXACT_TIMES;
+    }
+
+    /**
+     * Gets the check-in day, only for reservations stored as days.
+     */
+    public int getCheckInDay(final int id) {
+        return segments[id >>> SEGMENT_BITS].checkInDays[id & SEGMENT_MASK];
+    }
+
+    /**
+     * Gets the check-out day, only for reservations stored as days.
+     */
+    public int getCheckOutDay(final int id) {
+        return segments[id >>> SEGMENT_BITS].checkOutDays[id & SEGMENT_MASK];
+    }
+
+    public long getCheckIn(final int id) {
+        return hasWholeDays(id) ? ReservationDays.startOf(getCheckInDay(id)) : exactTimes.get(id)[0];
+    }
+
+    public long getCheckOut(final int id) {
+        return hasWholeDays(id) ? ReservationDays.startOf(getCheckOutDay(id)) : exactTimes.get(id)[1];
+    }
+
+    private static class Segment {
+        private final int[] roomIds = new int[SEGMENT_ROWS];
+        private final int[] customerIds = new int[SEGMENT_ROWS];
+        private final int[] checkInDays = new int[SEGMENT_ROWS];
+        private final int[] checkOutDays = new int[SEGMENT_ROWS];
+        private final boolean[] cancelled = new boolean[SEGMENT_ROWS];
+    }
+}
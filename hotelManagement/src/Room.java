@@ -5,17 +5,27 @@ public class Room {
     private final String roomNumber;
     private final Double price;
     private final RoomType enumeration;
+    private final int hashCode;
 
     public Room(final String roomNumber, final Double price, final RoomType enumeration) {
         this.roomNumber = roomNumber;
         this.price = price;
         this.enumeration = enumeration;
+        this.hashCode = Objects.hashCode(roomNumber);
     }
 
     public String getRoomNumber() {
         return this.roomNumber;
     }
 
+    public Double getPrice() {
+        return this.price;
+    }
+
+    public RoomType getRoomType() {
+        return this.enumeration;
+    }
+
     public String toString() {
         return "\n------------------------\n Room Number: " + this.roomNumber
                 + "\n Price: $" + this.price
@@ -35,6 +45,6 @@ public class Room {
     }
 
     public int hashCode() {
-        return Objects.hash(roomNumber);
+        return this.hashCode;
     }
 }
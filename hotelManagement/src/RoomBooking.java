@@ -0,0 +1,35 @@
+import java.util.Date;
+
+/**
+ * A room with the dates it should be booked for, e.g. one room of a group booking.
+ */
+public class RoomBooking {
+
+    private final Room room;
+    private final Date checkInDate;
+    private final Date checkOutDate;
+
+    public RoomBooking(final Room room, final Date checkInDate, final Date checkOutDate) {
+        this.room = room;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    public Room getRoom() {
+        return this.room;
+    }
+
+    public Date getCheckInDate() {
+        return this.checkInDate;
+    }
+
+    public Date getCheckOutDate() {
+        return this.checkOutDate;
+    }
+
+    public String toString() {
+        return "Room Number: " + this.room.getRoomNumber()
+                + " Check-In Date: " + this.checkInDate
+                + " Check-Out Date: " + this.checkOutDate;
+    }
+}
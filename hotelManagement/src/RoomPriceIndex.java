@@ -0,0 +1,244 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the ids of the rooms of every room type ordered by their price, so that
+ * a search for the cheapest free rooms reads the rooms from the cheapest one on
+ * and can stop as soon as it has enough rooms.
+ * The ordered ids are replaced by a copy when rooms are added, searches can read
+ * them at any time without locking. Single rooms only copy a short run of the
+ * recently added rooms, so adding rooms one by one is not quadratic.
+ */
+public class RoomPriceIndex {
+
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private final IdArray<Room> indexedRooms = new IdArray<>();
+    private final AtomicReferenceArray<PricedRooms> roomsByType = new AtomicReferenceArray<>(ROOM_TYPES.length);
+
+    public RoomPriceIndex() {
+        for (RoomType roomType : ROOM_TYPES) {
+            roomsByType.set(roomType.ordinal(), new PricedRooms(new double[0], new int[0]));
+        }
+    }
+
+    /**
+     * Adds a room, a room which was added before with the same id is replaced.
+     * @param roomId id of the room
+     * @param room which is added
+     */
+    public void add(final int roomId, final Room room) {
+        addAll(new int[] {roomId}, new Room[] {room});
+    }
+
+    /**
+     * Adds many rooms at once, they are merged into the index with a single copy per room type.
+     * @param roomIds ids of the rooms
+     * @param rooms which are added, the room of every id at the same index
+     */
+    public synchronized void addAll(final int[] roomIds, final Room[] rooms) {
+        final Map<Integer, Room> addedRooms = new LinkedHashMap<>();
+        final int[] replacedRoomIds = new int[roomIds.length];
+        int replacedCount = 0;
+
+        for (int index = 0; index < roomIds.length; index++) {
+            addedRooms.put(roomIds[index], rooms[index]);
+        }
+
+        for (Map.Entry<Integer, Room> addedRoom : addedRooms.entrySet()) {
+            if (indexedRooms.set(addedRoom.getKey(), addedRoom.getValue()) != null) {
+                replacedRoomIds[replacedCount++] = addedRoom.getKey();
+            }
+        }
+
+        final int[] sortedReplacedRoomIds = Arrays.copyOf(replacedRoomIds, replacedCount);
+
+        Arrays.sort(sortedReplacedRoomIds);
+
+        for (RoomType roomType : ROOM_TYPES) {
+            final int[] addedRoomIds = addedRooms.entrySet().stream()
+                    .filter(addedRoom -> addedRoom.getValue().getRoomType() == roomType)
+                    .sorted(Comparator.comparingDouble((Map.Entry<Integer, Room> addedRoom)
+                            -> priceOf(addedRoom.getValue())).thenComparingInt(Map.Entry::getKey))
+                    .mapToInt(Map.Entry::getKey).toArray();
+
+            if (addedRoomIds.length > 0 || sortedReplacedRoomIds.length > 0) {
+                roomsByType.set(roomType.ordinal(), roomsByType.get(roomType.ordinal())
+                        .merge(sortedReplacedRoomIds, addedRoomIds, indexedRooms));
+            }
+        }
+    }
+
+    /**
+     * Passes the ids of the rooms to the action in the order of their price, the cheapest first.
+     * Rooms of the same price are passed in the order of their ids.
+     * @param roomType type of the rooms or null for the rooms of all types
+     * @param minPrice lowest price of the rooms
+     * @param maxPrice highest price of the rooms
+     * @param action gets the id of every room, returns false to stop
+     */
+    public void forEachByPrice(final RoomType roomType, final double minPrice, final double maxPrice,
+                               final IntPredicate action) {
+        final int types = roomType != null ? 1 : ROOM_TYPES.length;
+        final double[][] prices = new double[2 * types][];
+        final int[][] roomIds = new int[2 * types][];
+        final int[][] removedRoomIds = new int[2 * types][];
+        final int[] positions = new int[2 * types];
+
+        for (int type = 0; type < types; type++) {
+            final PricedRooms pricedRooms = roomsByType.get(roomType != null ? roomType.ordinal() : type);
+
+            prices[2 * type] = pricedRooms.prices;
+            roomIds[2 * type] = pricedRooms.roomIds;
+            removedRoomIds[2 * type] = pricedRooms.removedRoomIds;
+            prices[2 * type + 1] = pricedRooms.addedPrices;
+            roomIds[2 * type + 1] = pricedRooms.addedRoomIds;
+            removedRoomIds[2 * type + 1] = new int[0];
+        }
+
+        for (int run = 0; run < positions.length; run++) {
+            positions[run] = firstFrom(prices[run], minPrice);
+        }
+
+        while (true) {
+            int cheapestRun = -1;
+
+            for (int run = 0; run < positions.length; run++) {
+                while (positions[run] < roomIds[run].length
+                        && Arrays.binarySearch(removedRoomIds[run], roomIds[run][positions[run]]) >= 0) {
+                    positions[run]++;
+                }
+                if (positions[run] == roomIds[run].length) {
+                    continue;
+                }
+                if (cheapestRun < 0 || compare(prices[run][positions[run]], roomIds[run][positions[run]],
+                        prices[cheapestRun][positions[cheapestRun]],
+                        roomIds[cheapestRun][positions[cheapestRun]]) < 0) {
+                    cheapestRun = run;
+                }
+            }
+
+            if (cheapestRun < 0 || prices[cheapestRun][positions[cheapestRun]] > maxPrice
+                    || !action.test(roomIds[cheapestRun][positions[cheapestRun]++])) {
+                return;
+            }
+        }
+    }
+
+    private static int compare(final double price, final int roomId, final double otherPrice, final int otherRoomId) {
+        final int byPrice = Double.compare(price, otherPrice);
+
+        return byPrice != 0 ? byPrice : Integer.compare(roomId, otherRoomId);
+    }
+
+    /**
+     * Gets the position of the first room which costs at least the price.
+     */
+    private static int firstFrom(final double[] prices, final double price) {
+        int low = 0;
+        int high = prices.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (prices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static double priceOf(final Room room) {
+        return room.getPrice() != null ? room.getPrice() : 0.0;
+    }
+
+    /**
+     * Ids of the rooms of one type with their prices, sorted by price and id. The rooms
+     * which were added one by one are kept in a short second run and the replaced rooms
+     * are only skipped in the first run, so adding a room only copies the short arrays.
+     * They are merged into the first run when they grow beyond the square root of the rooms.
+     */
+    private static class PricedRooms {
+
+        private static final int MIN_ADDED_ROOMS = 64;
+
+        private final double[] prices;
+        private final int[] roomIds;
+        private final double[] addedPrices;
+        private final int[] addedRoomIds;
+        private final int[] removedRoomIds;
+
+        private PricedRooms(final double[] prices, final int[] roomIds) {
+            this(prices, roomIds, new double[0], new int[0], new int[0]);
+        }
+
+        private PricedRooms(final double[] prices, final int[] roomIds, final double[] addedPrices,
+                            final int[] addedRoomIds, final int[] removedRoomIds) {
+            this.prices = prices;
+            this.roomIds = roomIds;
+            this.addedPrices = addedPrices;
+            this.addedRoomIds = addedRoomIds;
+            this.removedRoomIds = removedRoomIds;
+        }
+
+        /**
+         * Removes the replaced rooms and merges the added rooms, which are sorted by price, into a copy.
+         */
+        private PricedRooms merge(final int[] sortedReplacedRoomIds, final int[] addedRoomIds,
+                                  final IdArray<Room> rooms) {
+            final double[] newPrices = new double[addedRoomIds.length];
+
+            for (int index = 0; index < addedRoomIds.length; index++) {
+                newPrices[index] = priceOf(rooms.get(addedRoomIds[index]));
+            }
+
+            final PricedRooms added = mergeRuns(this.addedPrices, this.addedRoomIds, newPrices, addedRoomIds,
+                    sortedReplacedRoomIds);
+            final int[] removed = IntStream.concat(Arrays.stream(removedRoomIds), Arrays.stream(sortedReplacedRoomIds))
+                    .sorted().distinct().toArray();
+
+            if (added.roomIds.length + removed.length <= Math.max(MIN_ADDED_ROOMS, (int) Math.sqrt(roomIds.length))) {
+                return new PricedRooms(prices, roomIds, added.prices, added.roomIds, removed);
+            }
+
+            return mergeRuns(prices, roomIds, added.prices, added.roomIds, removed);
+        }
+
+        /**
+         * Merges two sorted runs into one without the replaced rooms.
+         */
+        private static PricedRooms mergeRuns(final double[] prices, final int[] roomIds, final double[] otherPrices,
+                                             final int[] otherRoomIds, final int[] sortedReplacedRoomIds) {
+            final double[] mergedPrices = new double[roomIds.length + otherRoomIds.length];
+            final int[] mergedRoomIds = new int[mergedPrices.length];
+            int size = 0;
+            int existing = 0;
+            int other = 0;
+
+            while (existing < roomIds.length || other < otherRoomIds.length) {
+                if (existing < roomIds.length
+                        && Arrays.binarySearch(sortedReplacedRoomIds, roomIds[existing]) >= 0) {
+                    existing++;
+                } else if (other == otherRoomIds.length || (existing < roomIds.length
+                        && compare(prices[existing], roomIds[existing],
+                        otherPrices[other], otherRoomIds[other]) <= 0)) {
+                    mergedPrices[size] = prices[existing];
+                    mergedRoomIds[size++] = roomIds[existing++];
+                } else {
+                    mergedPrices[size] = otherPrices[other];
+                    mergedRoomIds[size++] = otherRoomIds[other++];
+                }
+            }
+
+            return new PricedRooms(Arrays.copyOf(mergedPrices, size), Arrays.copyOf(mergedRoomIds, size));
+        }
+    }
+}
@@ -0,0 +1,363 @@
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Keeps the reservations of a single room ordered by their check-in day,
+ * so that an availability check only looks at the bookings around the
+ * wished dates instead of the whole reservation history.
+ * The days and ids are kept in primitive arrays which are replaced on every
+ * booking, searches can read them at any time without locking. Bookings need
+ * to hold the lock of the room.
+ * Cancelled reservations stay in the arrays as tombstones which are skipped
+ * by the searches, so a cancellation doesn't copy the arrays. Once a quarter
+ * of the reservations are tombstones the room should be compacted.
+ */
+public class RoomReservations {
+
+    private static final int EXACT_FIELDS = 3;
+    private static final int MIN_TOMBSTONES = 8;
+
+    private final ReservationStore store;
+    private volatile Days days = new Days(new int[0], new int[0], new int[0], 0);
+    private volatile long[] exactTimes = new long[0];
+    private volatile int tombstones;
+
+    /**
+     * Creates the index of a room.
+     * @param store with the reservations of the room
+     */
+    public RoomReservations(final ReservationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Adds a reservation of the store to the index of the room.
+     * @param id of the reservation of this room
+     */
+    public void add(final int id) {
+        addAll(new int[] {id});
+    }
+
+    /**
+     * Adds many reservations of the store at once, they are merged
+     * into the index with a single copy.
+     * @param ids of the reservations of this room
+     */
+    public void addAll(final int[] ids) {
+        // the check-in day in the high half of a long sorts the ids by day and then by id without boxing
+        final int[] dayIds = Arrays.stream(ids).filter(store::hasWholeDays)
+                .mapToLong(id -> (long) store.getCheckInDay(id) << 32 | id)
+                .sorted().mapToInt(dayId -> (int) dayId).toArray();
+
+        if (dayIds.length < ids.length) {
+            addExactTimes(ids);
+        }
+        if (dayIds.length > 0) {
+            days = days.merge(store, dayIds);
+        }
+    }
+
+    /**
+     * Counts a reservation of the room which was cancelled in the store as tombstone.
+     * @param id of the cancelled reservation
+     * @return true when the room should be compacted
+     */
+    public boolean cancel(final int id) {
+        final int reservations = days.ids.length + exactTimes.length / EXACT_FIELDS;
+
+        tombstones++;
+        return tombstones >= MIN_TOMBSTONES && tombstones * 4 >= reservations;
+    }
+
+    /**
+     * Removes the cancelled reservations from the arrays with a single copy.
+     */
+    public void compact() {
+        final Days days = this.days;
+        final long[] exactTimes = this.exactTimes;
+        final IntList dayIds = new IntList(days.ids.length);
+        final long[] compactedTimes = new long[exactTimes.length];
+        int position = 0;
+
+        for (int id : days.ids) {
+            if (!store.isCancelled(id)) {
+                dayIds.add(id);
+            }
+        }
+
+        for (int index = 0; index < exactTimes.length; index += EXACT_FIELDS) {
+            if (!store.isCancelled((int) exactTimes[index + 2])) {
+                System.arraycopy(exactTimes, index, compactedTimes, position, EXACT_FIELDS);
+                position += EXACT_FIELDS;
+            }
+        }
+
+        this.days = new Days(new int[0], new int[0], new int[0], 0).merge(store, dayIds.toArray());
+        this.exactTimes = Arrays.copyOf(compactedTimes, position);
+        tombstones = 0;
+    }
+
+
+    /**
+     * Adds the reservations which don't start and end at midnight
+     * as check-in, check-out and id to the exact times.
+     */
+    private void addExactTimes(final int[] ids) {
+        final int[] exactIds = Arrays.stream(ids).filter(id -> !store.hasWholeDays(id)).toArray();
+        final long[] grown = Arrays.copyOf(exactTimes, exactTimes.length + EXACT_FIELDS * exactIds.length);
+        int position = exactTimes.length;
+
+        for (int id : exactIds) {
+            grown[position++] = store.getCheckIn(id);
+            grown[position++] = store.getCheckOut(id);
+            grown[position++] = id;
+        }
+        exactTimes = grown;
+    }
+
+    /**
+     * Checks if a reservation of the room overlaps with the wished dates.
+     * Only reservations which check in before the wished check-out and at most
+     * the longest stay before the wished check-in can overlap.
+     * @param checkInDate date
+     * @param checkOutDate date
+     * @return true when the room is booked for these dates
+     */
+    public boolean isBooked(final Date checkInDate, final Date checkOutDate) {
+        return isBooked(checkInDate.getTime(), checkOutDate.getTime());
+    }
+
+    /**
+     * Checks if a reservation of the room overlaps with the wished times.
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return true when the room is booked for these times
+     */
+    public boolean isBooked(final long checkIn, final long checkOut) {
+        return isBooked(checkIn, checkOut, -1);
+    }
+
+    /**
+     * Checks if another reservation of the room overlaps with the wished times,
+     * e.g. when a reservation is moved to new dates.
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @param ignoredId id of the reservation which is not checked
+     * @return true when the room is booked for these times
+     */
+    public boolean isBooked(final long checkIn, final long checkOut, final int ignoredId) {
+        return isBookedOnDays(ReservationDays.dayOf(checkIn), ReservationDays.nextDayOf(checkOut), ignoredId)
+                || isBookedAtExactTimes(checkIn, checkOut, ignoredId);
+    }
+
+    /**
+     * A reservation from the day to the day overlaps if it checks out after
+     * the first wished night and checks in before the wished check-out day.
+     */
+    private boolean isBookedOnDays(final int fromDay, final int toDay, final int ignoredId) {
+        final Days days = this.days;
+        final long earliestCheckIn = (long) fromDay - days.longestStay;
+
+        if (earliestCheckIn >= toDay) {
+            return false;
+        }
+
+        for (int index = days.firstCheckInFrom(earliestCheckIn);
+             index < days.checkInDays.length && days.checkInDays[index] < toDay; index++) {
+            if (fromDay < days.checkOutDays[index] && isActive(days.ids[index], ignoredId)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isBookedAtExactTimes(final long checkIn, final long checkOut, final int ignoredId) {
+        final long[] exactTimes = this.exactTimes;
+
+        for (int index = 0; index < exactTimes.length; index += EXACT_FIELDS) {
+            if (checkIn < exactTimes[index + 1] && checkOut > exactTimes[index]
+                    && isActive((int) exactTimes[index + 2], ignoredId)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isActive(final int id, final int ignoredId) {
+        return id != ignoredId && !store.isCancelled(id);
+    }
+
+    /**
+     * Finds a reservation of the room which is not cancelled.
+     * @param customerId id of the customer who booked it
+     * @param checkIn millis of the check-in
+     * @param checkOut millis of the check-out
+     * @return id of the reservation or -1 when there is none
+     */
+    public int findReservation(final int customerId, final long checkIn, final long checkOut) {
+        if (ReservationStore.isWholeDays(checkIn, checkOut)) {
+            final Days days = this.days;
+            final int checkInDay = ReservationDays.dayOf(checkIn);
+            final int checkOutDay = ReservationDays.dayOf(checkOut);
+
+            for (int index = days.firstCheckInFrom(checkInDay);
+                 index < days.checkInDays.length && days.checkInDays[index] == checkInDay; index++) {
+                if (days.checkOutDays[index] == checkOutDay && isReservationOf(days.ids[index], customerId)) {
+                    return days.ids[index];
+                }
+            }
+        } else {
+            final long[] exactTimes = this.exactTimes;
+
+            for (int index = 0; index < exactTimes.length; index += EXACT_FIELDS) {
+                if (exactTimes[index] == checkIn && exactTimes[index + 1] == checkOut
+                        && isReservationOf((int) exactTimes[index + 2], customerId)) {
+                    return (int) exactTimes[index + 2];
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isReservationOf(final int id, final int customerId) {
+        return store.getCustomerId(id) == customerId && !store.isCancelled(id);
+    }
+
+    /**
+     * Marks the nights between the days at which the room is booked.
+     * @param fromDay first night
+     * @param toDay day after the last night
+     * @param bookedNights set to true for booked nights, index 0 is the first night
+     */
+    public void markBookedNights(final int fromDay, final int toDay, final boolean[] bookedNights) {
+        final Days days = this.days;
+        final long[] exactTimes = this.exactTimes;
+
+        for (int index = days.firstCheckInFrom((long) fromDay - days.longestStay);
+             index < days.checkInDays.length && days.checkInDays[index] < toDay; index++) {
+            if (!store.isCancelled(days.ids[index])) {
+                markNights(days.checkInDays[index], days.checkOutDays[index], fromDay, toDay, bookedNights);
+            }
+        }
+
+        for (int index = 0; index < exactTimes.length; index += EXACT_FIELDS) {
+            if (store.isCancelled((int) exactTimes[index + 2])) {
+                continue;
+            }
+            markNights(ReservationDays.dayOf(exactTimes[index]), ReservationDays.nextDayOf(exactTimes[index + 1]),
+                    fromDay, toDay, bookedNights);
+        }
+    }
+
+    /**
+     * Finds the reservations which stay over the night, from the day of their
+     * check-in to the day before their check-out.
+     * @param night day since 1970
+     * @return ids of the reservations, usually one or none
+     */
+    public int[] findReservationsOnNight(final int night) {
+        final Days days = this.days;
+        final long[] exactTimes = this.exactTimes;
+        final IntList ids = new IntList(1);
+
+        for (int index = days.firstCheckInFrom((long) night - days.longestStay);
+             index < days.checkInDays.length && days.checkInDays[index] <= night; index++) {
+            if (night < days.checkOutDays[index] && !store.isCancelled(days.ids[index])) {
+                ids.add(days.ids[index]);
+            }
+        }
+
+        for (int index = 0; index < exactTimes.length; index += EXACT_FIELDS) {
+            if (ReservationDays.dayOf(exactTimes[index]) <= night
+                    && night < ReservationDays.dayOf(exactTimes[index + 1])
+                    && !store.isCancelled((int) exactTimes[index + 2])) {
+                ids.add((int) exactTimes[index + 2]);
+            }
+        }
+
+        return ids.toArray();
+    }
+
+    private static void markNights(final int checkInDay, final int checkOutDay, final int fromDay, final int toDay,
+                                   final boolean[] bookedNights) {
+        final int firstNight = Math.max(checkInDay, fromDay);
+        final int lastNight = Math.min(checkOutDay, toDay);
+
+        if (firstNight < lastNight) {
+            Arrays.fill(bookedNights, firstNight - fromDay, lastNight - fromDay, true);
+        }
+    }
+
+    /**
+     * Reservations of whole days, sorted by check-in day.
+     */
+    private static class Days {
+
+        private final int[] checkInDays;
+        private final int[] checkOutDays;
+        private final int[] ids;
+        private final int longestStay;
+
+        private Days(final int[] checkInDays, final int[] checkOutDays, final int[] ids, final int longestStay) {
+            this.checkInDays = checkInDays;
+            this.checkOutDays = checkOutDays;
+            this.ids = ids;
+            this.longestStay = longestStay;
+        }
+
+        /**
+         * Merges the reservations, which are sorted by check-in day, into a copy.
+         */
+        private Days merge(final ReservationStore store, final int[] sortedIds) {
+            final int size = ids.length + sortedIds.length;
+            final int[] mergedCheckInDays = new int[size];
+            final int[] mergedCheckOutDays = new int[size];
+            final int[] mergedIds = new int[size];
+            int mergedLongestStay = longestStay;
+            int existing = 0;
+            int added = 0;
+
+            for (int index = 0; index < size; index++) {
+                if (added == sortedIds.length || (existing < ids.length
+                        && checkInDays[existing] <= store.getCheckInDay(sortedIds[added]))) {
+                    mergedCheckInDays[index] = checkInDays[existing];
+                    mergedCheckOutDays[index] = checkOutDays[existing];
+                    mergedIds[index] = ids[existing++];
+                } else {
+                    final int id = sortedIds[added++];
+
+                    mergedCheckInDays[index] = store.getCheckInDay(id);
+                    mergedCheckOutDays[index] = store.getCheckOutDay(id);
+                    mergedIds[index] = id;
+                    mergedLongestStay = Math.max(mergedLongestStay,
+                            mergedCheckOutDays[index] - mergedCheckInDays[index]);
+                }
+            }
+
+            return new Days(mergedCheckInDays, mergedCheckOutDays, mergedIds, mergedLongestStay);
+        }
+
+        /**
+         * Gets the index of the first reservation which checks in on or after the day.
+         */
+        private int firstCheckInFrom(final long day) {
+            int low = 0;
+            int high = checkInDays.length;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+
+                if (checkInDays[middle] < day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+}
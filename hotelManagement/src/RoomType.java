@@ -17,4 +17,19 @@ public enum RoomType {
         }
         throw new IllegalArgumentException();
     }
+
+    /**
+     * Parses the room type of the HTTP API, a batch script or an import file.
+     * @param value the name, e.g. SINGLE or single, or the label of the menu, e.g. 1
+     * @return the room type
+     * @throws IllegalArgumentException when there is no such room type
+     */
+    public static RoomType parse(final String value) {
+        for (RoomType roomType : values()) {
+            if (roomType.label.equals(value) || roomType.name().equalsIgnoreCase(value)) {
+                return roomType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown room type " + value);
+    }
 }
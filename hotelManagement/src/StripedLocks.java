@@ -0,0 +1,41 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks which are shared by rooms with the same stripe,
+ * so that bookings of different rooms can run in parallel without
+ * one lock object per room.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(final int stripes) {
+        this.locks = new ReentrantLock[stripes];
+
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            locks[stripe] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the lock of the stripe a dense id belongs to, consecutive ids
+     * get different stripes.
+     * @param id e.g. the id of the room
+     * @return the lock
+     */
+    public ReentrantLock lockFor(final int id) {
+        return locks[Math.floorMod(id, locks.length)];
+    }
+
+    /**
+     * Gets the distinct locks of the stripes the ids belong to, ordered by stripe.
+     * Threads which lock several stripes in this order can't deadlock each other.
+     * @param ids e.g. the ids of the rooms
+     * @return the locks in the order they have to be locked
+     */
+    public ReentrantLock[] locksFor(final int[] ids) {
+        return Arrays.stream(ids).map(id -> Math.floorMod(id, locks.length)).distinct().sorted()
+                .mapToObj(stripe -> locks[stripe]).toArray(ReentrantLock[]::new);
+    }
+}